@@ -0,0 +1,50 @@
+package game;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Named --name=value arguments for the headless modes, read the same way
+JavaFX reads them for the game window
+*/
+public final class Arguments
+{
+    private final Map<String, String> named = new HashMap<>();
+
+    public Arguments(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("--"))
+            {
+                int equals = arg.indexOf('=');
+                if (equals < 0)
+                    named.put(arg.substring(2), "true");
+                else
+                    named.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+    }
+
+    public String get(String name, String fallback)
+    {
+        return named.getOrDefault(name, fallback);
+    }
+
+    public int getInt(String name, int fallback)
+    {
+        String value = named.get(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    public long getLong(String name, long fallback)
+    {
+        String value = named.get(name);
+        return value == null ? fallback : Long.parseLong(value);
+    }
+
+    public boolean has(String name)
+    {
+        return named.containsKey(name);
+    }
+}
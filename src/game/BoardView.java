@@ -0,0 +1,24 @@
+package game;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/*
+Draws the board and reports clicks on it.  Cells are addressed the way the
+slots are laid out: column from the left, row from the top.
+*/
+interface BoardView
+{
+    Node getNode();
+
+    void setFill(int x, int y, Color color);
+
+    Color getFill(int x, int y);
+
+    void setOnCellClicked(CellClickHandler handler);
+
+    interface CellClickHandler
+    {
+        void clicked(int x, int y);
+    }
+}
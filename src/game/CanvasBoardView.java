@@ -0,0 +1,132 @@
+package game;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+
+/*
+Draws the whole board on a single Canvas.  Fill changes only mark their cell
+dirty; once per pulse the dirty cells, and only those, are repainted.  One
+mouse handler on the canvas turns a click into a cell with a hit test.
+*/
+class CanvasBoardView implements BoardView
+{
+    private final int columns;
+    private final int rows;
+    private final double radius;
+    private final double pitch;
+    private final Canvas canvas;
+    private final StackPane pane;
+    private final Color[] fills;
+    private final boolean[] dirty;
+    private final int[] dirtyCells;
+    private int dirtyCount;
+    private boolean repaintPending;
+    private CellClickHandler handler;
+
+    private final AnimationTimer repaint = new AnimationTimer()
+    {
+        @Override
+        public void handle(long now)
+        {
+            flush();
+        }
+    };
+
+    CanvasBoardView(int columns, int rows, double radius, double padding)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.radius = radius;
+        pitch = 2 * radius + padding;
+        canvas = new Canvas(columns * pitch, rows * pitch);
+        pane = new StackPane(canvas);
+        fills = new Color[columns * rows];
+        dirty = new boolean[fills.length];
+        dirtyCells = new int[fills.length];
+        for (int cell = 0; cell < fills.length; cell++)
+        {
+            fills[cell] = Player.EMPTY.getColor();
+            markDirty(cell);
+        }
+
+        canvas.setOnMouseClicked(e ->
+        {
+            int x = (int) (e.getX() / pitch);
+            int y = (int) (e.getY() / pitch);
+            double dx = e.getX() - (x + 0.5) * pitch;
+            double dy = e.getY() - (y + 0.5) * pitch;
+            if (handler != null && x < columns && y < rows && dx * dx + dy * dy <= radius * radius)
+            {
+                handler.clicked(x, y);
+            }
+        });
+    }
+
+    @Override
+    public Node getNode()
+    {
+        return pane;
+    }
+
+    @Override
+    public void setFill(int x, int y, Color color)
+    {
+        int cell = y * columns + x;
+        if (!color.equals(fills[cell]))
+        {
+            fills[cell] = color;
+            markDirty(cell);
+        }
+    }
+
+    @Override
+    public Color getFill(int x, int y)
+    {
+        return fills[y * columns + x];
+    }
+
+    @Override
+    public void setOnCellClicked(CellClickHandler handler)
+    {
+        this.handler = handler;
+    }
+
+    private void markDirty(int cell)
+    {
+        if (!dirty[cell])
+        {
+            dirty[cell] = true;
+            dirtyCells[dirtyCount++] = cell;
+        }
+        if (!repaintPending)
+        {
+            repaintPending = true;
+            repaint.start();
+        }
+    }
+
+    private void flush()
+    {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setStroke(Color.BLACK);
+        for (int i = 0; i < dirtyCount; i++)
+        {
+            int cell = dirtyCells[i];
+            dirty[cell] = false;
+            double left = (cell % columns) * pitch;
+            double top = (cell / columns) * pitch;
+            double inset = (pitch - 2 * radius) / 2;
+            g.clearRect(left, top, pitch, pitch);
+            g.setFill(fills[cell]);
+            g.fillOval(left + inset, top + inset, 2 * radius, 2 * radius);
+            g.strokeOval(left + inset, top + inset, 2 * radius, 2 * radius);
+        }
+        dirtyCount = 0;
+        repaintPending = false;
+        repaint.stop();
+    }
+}
@@ -1,31 +1,43 @@
 package game;
 
-import java.net.URL;
+import game.ai.Analyzer;
+import game.ai.BookSearcher;
+import game.ai.MctsSearch;
+import game.ai.NegamaxAgent;
+import game.ai.OpeningBook;
+import game.ai.ParallelSearch;
+import game.ai.SearchBudget;
+import game.ai.SearchResult;
+import game.ai.Searcher;
+import game.ai.TranspositionTable;
+import game.engine.Board;
+import game.engine.Geometry;
+import game.engine.MoveHistory;
+import game.event.EventBus;
+import game.event.GameEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.event.EventHandler;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaException;
-import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import javafx.util.Duration;
@@ -35,35 +47,62 @@ The classic two player connection game
 */
 public class ConnectFour extends Application
 {
-    private static final int NUM_ROWS = 7;
-    private static final int NUM_COLUMNS = 6;
-    private static final int NUM_SLOTS = NUM_ROWS * NUM_COLUMNS;
     private static final double BOARD_WIDTH = 600;
     private static final double BOARD_HEIGHT = 650;
     private static final double PADDING = 5;
 
-    private final Player[][] gridPlayers = new Player[NUM_COLUMNS][NUM_ROWS];
-    private final Slot[][] gridSlots = new Slot[NUM_COLUMNS][NUM_ROWS];
-    private final ArrayList<Slot> alSlot = new ArrayList<>();
-    private final ArrayList<Slot> alWinnerSlot = new ArrayList<>();
+    private int numRows;
+    private int numColumns;
+    private Geometry geometry;
+    private Board board;
+    private Slot[][] gridSlots;
+    private BoardView view;
+    private MoveHistory history;
+    private int winningLine = -1;
     
     private Player whoseUp = Player.RED;
-    private int numCycles = 0;
+    private DropAnimator animator;
+    private boolean locked = false;
     private Label lblMessage;
-    private int slotFilledCounter = 0;
+    private Button btnUndo;
+    private Button btnRedo;
+    private Slider slHistory;
+    private boolean syncingHistory;
     
     private Timeline animSlots;
     private boolean gameWon = false;
     private boolean draw = false;
 
-    private MediaPlayer mPlayerWin;  
-    private MediaPlayer mPlayerFill;
-    private MediaPlayer mPlayerDrawSound;
+    private final SoundBank sounds = new SoundBank();
+    private final GameMetrics metrics = new GameMetrics();
+    private final EventBus events = new EventBus(10);
+    private long gameNumber = 1;
+    private long moveStarted;
 
+    private Player computerPlayer;
+    private Searcher computer;
+    private long computerMillis = 1000;
+    private int computerThreads = 1;
+    private String computerBook;
+    private boolean computerMcts;
+    private ExecutorService computerThread;
+    private SearchBudget pendingMove;
+    private HintBar hintBar;
+    private Analyzer analyzer;
     
     @Override
     public void start(Stage primaryStage)
     {
+        StartupProfile.mark("fx start");
+        geometry = readGeometry();
+        numRows = geometry.getRows();
+        numColumns = geometry.getColumns();
+        board = new Board(geometry);
+        history = new MoveHistory(board);
+        gridSlots = new Slot[numColumns][numRows];
+        readComputerPlayer();
+        metrics.gameStarted();
+
         BorderPane root = new BorderPane();
         root.setTop(initTitle());
         root.setCenter(setUpBoard());
@@ -73,7 +112,105 @@ public class ConnectFour extends Application
         Scene scene = new Scene(root, BOARD_WIDTH - 100, BOARD_HEIGHT);
         primaryStage.setTitle("Connect Four");
         primaryStage.setScene(scene);
+        StartupProfile.mark("scene built");
         primaryStage.show();
+        StartupProfile.mark("stage shown");
+        scene.addPostLayoutPulseListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scene.removePostLayoutPulseListener(this);
+                Platform.runLater(() -> firstFrame());
+            }
+        });
+        requestComputerMove();
+    }
+    
+    /*
+    Runs once the first frame is up.  Whatever the board does not need to
+    draw itself is loaded from here on, off the path to the first frame.
+    --startup-exit quits right away, which is meant for training an AppCDS
+    archive with -XX:ArchiveClassesAtExit.
+    */
+    private void firstFrame()
+    {
+        StartupProfile.mark("first frame");
+        sounds.preload();
+        startMetrics();
+        if (computerThread != null)
+        {
+            computerThread.execute(this::computer);
+        }
+        startHints();
+        if (getParameters().getRaw().contains("--startup-exit"))
+        {
+            reportStartup();
+            Platform.exit();
+        }
+    }
+    
+    /*
+    The counters are always kept; --metrics-log=seconds also prints them
+    every so many seconds, and --event-log prints every game event
+    */
+    private void startMetrics()
+    {
+        metrics.register();
+        events.subscribe("metrics", metrics);
+        if (getParameters().getRaw().contains("--event-log"))
+        {
+            events.subscribe("event-log", event -> System.err.println(event));
+        }
+        String seconds = getParameters().getNamed().get("metrics-log");
+        try
+        {
+            if (seconds != null)
+            {
+                metrics.logEvery(Long.parseLong(seconds));
+            }
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+        }
+    }
+    
+    /*
+    With --hints the position is analysed in the background whenever it is
+    a person's turn, and the scores so far are shown under the columns
+    */
+    private void startHints()
+    {
+        if (hintBar == null || gameWon || draw || whoseUp == computerPlayer)
+        {
+            return;
+        }
+        if (analyzer == null)
+        {
+            analyzer = new Analyzer(TranspositionTable.shared());
+        }
+        analyzer.analyze(board, hintBar.track());
+    }
+    
+    private void stopHints()
+    {
+        if (analyzer != null)
+        {
+            analyzer.stop();
+        }
+        if (hintBar != null)
+        {
+            hintBar.clear();
+        }
+    }
+    
+    private void reportStartup()
+    {
+        if (getParameters().getRaw().contains("--startup-profile"))
+        {
+            StartupProfile.report(System.err);
+        }
     }
     
     public static void entry(String[] args)
@@ -81,6 +218,145 @@ public class ConnectFour extends Application
         launch(args);
     }
     
+    /*
+    Board size and connect length come from --geometry=columnsxrows/connect,
+    e.g. --geometry=9x7/5
+    */
+    private Geometry readGeometry()
+    {
+        String spec = getParameters().getNamed().get("geometry");
+        try
+        {
+            if (spec != null)
+            {
+                return Geometry.parse(spec);
+            }
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+        }
+        return Geometry.STANDARD;
+    }
+    
+    /*
+    --ai=red or --ai=blue hands that color to the computer,
+    --ai-time=millis sets how long it may think per move,
+    --ai-threads=n searches on n threads, --ai-search=mcts swaps the
+    alpha-beta search for Monte Carlo tree search (the better choice on
+    large boards) and --book=file answers opening moves from a book built
+    by OpeningBookBuilder
+    */
+    private void readComputerPlayer()
+    {
+        String color = getParameters().getNamed().get("ai");
+        String millis = getParameters().getNamed().get("ai-time");
+        String threads = getParameters().getNamed().get("ai-threads");
+        String book = getParameters().getNamed().get("book");
+        String search = getParameters().getNamed().get("ai-search");
+        if (color == null)
+        {
+            return;
+        }
+        try
+        {
+            computerPlayer = Player.valueOf(color.toUpperCase());
+            if (computerPlayer == Player.EMPTY)
+            {
+                throw new IllegalArgumentException("The computer must play red or blue");
+            }
+            if (millis != null)
+            {
+                computerMillis = Long.parseLong(millis);
+            }
+            if (threads != null)
+            {
+                computerThreads = Integer.parseInt(threads);
+            }
+            if (search != null && !search.equals("mcts") && !search.equals("negamax"))
+            {
+                throw new IllegalArgumentException("Unknown search " + search);
+            }
+            computerMcts = "mcts".equals(search);
+            computerBook = book;
+            computerThread = Executors.newSingleThreadExecutor(r ->
+            {
+                Thread thread = new Thread(r, "computer-player");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            computerPlayer = null;
+        }
+    }
+    
+    /*
+    Builds the search the first time it is needed, on the computer thread,
+    so neither the table allocation nor opening the book delays the window
+    */
+    private Searcher computer()
+    {
+        if (computer == null)
+        {
+            Searcher search;
+            if (computerMcts)
+                search = new MctsSearch(computerThreads, System.nanoTime());
+            else if (computerThreads > 1)
+                search = new ParallelSearch(computerThreads, TranspositionTable.shared(), Integer.MAX_VALUE);
+            else
+                search = new NegamaxAgent(TranspositionTable.shared(), Integer.MAX_VALUE);
+            if (computerBook != null)
+            {
+                try
+                {
+                    search = new BookSearcher(OpeningBook.open(Paths.get(computerBook)), search);
+                }
+                catch (IllegalArgumentException | IOException ex)
+                {
+                    System.err.println(ex.getMessage());
+                }
+            }
+            computer = search;
+        }
+        return computer;
+    }
+    
+    /*
+    Starts a search off the application thread when it is the computer's
+    turn; the board stays locked until the move comes back
+    */
+    private void requestComputerMove()
+    {
+        if (computerPlayer == null || whoseUp != computerPlayer || gameWon || draw)
+        {
+            return;
+        }
+        lockBoard();
+        Board position = new Board(board);
+        SearchBudget budget = SearchBudget.millis(computerMillis);
+        pendingMove = budget;
+        computerThread.execute(() ->
+        {
+            SearchResult result = computer().search(position, budget);
+            metrics.searched(result.getNodes(), result.getElapsedNanos(), computer.getTableHitRate());
+            Platform.runLater(() -> playComputerMove(result, budget));
+        });
+    }
+    
+    private void playComputerMove(SearchResult result, SearchBudget budget)
+    {
+        if (budget != pendingMove || budget.isCancelled())
+        {
+            return;
+        }
+        pendingMove = null;
+        int col = result.getColumn();
+        gridSlots[col][numRows - 1 - board.getHeight(col)].dropCoin();
+    }
+    
     private HBox initTitle()
     {
         HBox hbTitle = new HBox();
@@ -93,81 +369,262 @@ public class ConnectFour extends Application
         return hbTitle;        
     }
     
-    private GridPane setUpBoard()
+    /*
+    --renderer=canvas draws the board on a single Canvas instead of one
+    node per slot, and --hints adds the analysis bars under the columns
+    */
+    private Node setUpBoard()
     {
-        GridPane board = new GridPane();
-        board.setAlignment(Pos.CENTER);
-        board.setVgap(PADDING);
-        board.setHgap(PADDING);
-        double x = BOARD_WIDTH/NUM_COLUMNS;
-        double y = BOARD_HEIGHT/NUM_ROWS;
-        for (int i = 0; i < NUM_ROWS; i++)
-        {
-            for (int j = 0; j < NUM_COLUMNS; j++)
+        double radius = (BOARD_WIDTH / numColumns) / 2.5 - PADDING;
+        if ("canvas".equals(getParameters().getNamed().get("renderer")))
+            view = new CanvasBoardView(numColumns, numRows, radius, PADDING);
+        else
+            view = new NodeBoardView(numColumns, numRows, radius, PADDING);
+        view.setOnCellClicked((x, y) -> gridSlots[x][y].clicked());
+        history.setListener(this::paintCell);
+
+        for (int i = 0; i < numRows; i++)
+        {
+            for (int j = 0; j < numColumns; j++)
             {
                 Slot slot = new Slot();
-                Circle coin = slot.getCoin();
-                coin.setCenterX((x / 2) + (j * x));
-                coin.setCenterY((y / 2) + (i * y));
                 slot.setX(j);
                 slot.setY(i);
-                board.add(coin, j, i);
-                alSlot.add(slot);
-                gridPlayers[j][i] = Player.EMPTY;
                 gridSlots[j][i] = slot;
             }
         }
-        return board;
+        if (getParameters().getRaw().contains("--hints"))
+        {
+            hintBar = new HintBar(numColumns, radius, PADDING);
+            VBox vbBoard = new VBox(PADDING, view.getNode(), hintBar.getNode());
+            vbBoard.setAlignment(Pos.CENTER);
+            return vbBoard;
+        }
+        return view.getNode();
     }
     
     private HBox activateNewGameButton()
     {        
         Button btnNewGame = new Button("New Game");
-        btnNewGame.setOnAction(e ->
-        {
-            stopMedia();
-            resetBoard();           
+        btnNewGame.setOnAction(e -> newGame());
+        
+        btnUndo = new Button("Undo");
+        btnUndo.setOnAction(e -> navigate(skipComputer(board.getPly() - 1, -1)));
+        btnRedo = new Button("Redo");
+        btnRedo.setOnAction(e -> navigate(skipComputer(board.getPly() + 1, 1)));
+        slHistory = new Slider(0, 0, 0);
+        slHistory.setBlockIncrement(1);
+        slHistory.setMajorTickUnit(1);
+        slHistory.setMinorTickCount(0);
+        slHistory.setSnapToTicks(true);
+        slHistory.valueProperty().addListener((observable, oldValue, newValue) ->
+        {
+            if (!syncingHistory)
+            {
+                navigate((int) Math.round(newValue.doubleValue()));
+            }
         });
+        updateNavigation();
         
         HBox hbButton = new HBox(20);
         hbButton.setAlignment(Pos.CENTER);
         hbButton.setPadding(new Insets(5, 5, 5, 5));
-        hbButton.getChildren().add(btnNewGame);
+        hbButton.getChildren().addAll(btnNewGame, btnUndo, slHistory, btnRedo);
         
         return hbButton;
     }
     
+    /*
+    Against the computer, undo and redo step over its moves to the
+    person's next turn
+    */
+    private int skipComputer(int ply, int step)
+    {
+        if (computerPlayer != null && player(ply & 1) == computerPlayer
+                && ply + step >= 0 && ply + step <= history.getEnd())
+        {
+            return ply + step;
+        }
+        return ply;
+    }
+    
+    /*
+    Goes to any ply of the game, undoing or redoing one move at a time, so
+    only the cells that differ are repainted.  Play carries on from there;
+    a new move replaces the moves after it.
+    */
+    private void navigate(int ply)
+    {
+        if (ply == board.getPly() || ply < 0 || ply > history.getEnd())
+        {
+            return;
+        }
+        if (pendingMove != null)
+        {
+            pendingMove.cancel();
+            pendingMove = null;
+        }
+        stopHints();
+        if (animator != null)
+        {
+            animator.clear();
+        }
+        if (gameWon)
+        {
+            // the celebration recolored the winning line
+            for (int cell : geometry.getLineCells(winningLine))
+            {
+                paintCell(geometry.column(cell), geometry.row(cell), board.getOwner(geometry.column(cell), geometry.row(cell)));
+            }
+        }
+        stopMedia();
+        history.jumpTo(ply);
+        unLockBoard();
+        updateNavigation();
+
+        if (board.getPly() > 0)
+        {
+            int col = board.getMove(board.getPly() - 1);
+            Slot last = gridSlots[col][numRows - board.getHeight(col)];
+            if (last.checkWinner())
+            {
+                whoseUp = player((board.getPly() - 1) & 1);
+                gameWon = true;
+                last.broadcastWinner();
+                return;
+            }
+            if (board.isFull())
+            {
+                draw = true;
+                last.broadcastDraw();
+                return;
+            }
+        }
+        whoseUp = player(board.sideToMove());
+        lblMessage.setTextFill(whoseUp.getColor());
+        lblMessage.setText(whoseUp + " Player's Turn");
+        requestComputerMove();
+        startHints();
+    }
+    
+    private void updateNavigation()
+    {
+        syncingHistory = true;
+        slHistory.setMax(history.getEnd());
+        slHistory.setValue(board.getPly());
+        syncingHistory = false;
+        btnUndo.setDisable(!history.canUndo());
+        btnRedo.setDisable(!history.canRedo());
+    }
+    
+    private void paintCell(int col, int row, int side)
+    {
+        view.setFill(col, numRows - 1 - row, side == Board.EMPTY ? Player.EMPTY.getColor() : player(side).getColor());
+    }
+    
+    private static Player player(int side)
+    {
+        return side == 0 ? Player.RED : Player.BLUE;
+    }
+    
+    void newGame()
+    {
+        stopMedia();
+        resetBoard();
+    }
+    
+    /*
+    Clicks the open slot of a column, as a person would
+    */
+    void clickColumn(int col)
+    {
+        gridSlots[col][numRows - 1 - board.getHeight(col)].clicked();
+    }
+    
+    /*
+    True when a click would drop a disc: no drop is falling, the game is
+    on and nobody else is moving
+    */
+    boolean readyForMove()
+    {
+        return !locked && !gameWon && !draw && (animator == null || !animator.isAnimating());
+    }
+    
+    boolean isGameOver()
+    {
+        return gameWon || draw;
+    }
+    
+    Board getBoard()
+    {
+        return board;
+    }
+    
     public void stopMedia()
     {
         if (gameWon)
         {
-            mPlayerWin.stop();
+            sounds.stop(SoundBank.Sound.WIN);
             animSlots.stop();
             gameWon = false;
         }
 
         if (draw)
         {
-            mPlayerDrawSound.stop();
+            sounds.stop(SoundBank.Sound.DRAW);
             draw = false;
         }        
     }
     
     public void resetBoard()
     {
-        for (Slot slot: alSlot)
+        if (pendingMove != null)
+        {
+            pendingMove.cancel();
+            pendingMove = null;
+        }
+        stopHints();
+        if (animator != null)
         {
-            slot.resetFill();
-            slot.setFilled(false);
+            animator.clear();
         }
+        // only the cells with discs need clearing
+        history.clear();
+        updateNavigation();
+        unLockBoard();
+        metrics.gameStarted();
+        gameNumber++;
 
-        for (int i = 0; i < NUM_ROWS; i++)
+        whoseUp = Player.RED;
+        lblMessage.setTextFill(whoseUp.getColor());
+        lblMessage.setText(whoseUp + " Player's Turn");
+        requestComputerMove();
+        startHints();
+    }
+    
+    /*
+    Created with the first drop.  --drop-speed=millis sets how long a disc
+    takes to fall one row (0 drops it at once)
+    */
+    private DropAnimator animator()
+    {
+        if (animator == null)
         {
-            for (int j = 0; j < NUM_COLUMNS; j++)
-            {
-                gridPlayers[j][i] = Player.EMPTY;
-            }
-        }        
+            String dropSpeed = getParameters().getNamed().get("drop-speed");
+            animator = new DropAnimator(view, numColumns * numRows, dropSpeed == null ? 150 : Long.parseLong(dropSpeed));
+            animator.setFrameTiming(metrics.frames());
+        }
+        return animator;
+    }
+    
+    private void lockBoard()
+    {
+        locked = true;
+    }
+    
+    private void unLockBoard()
+    {
+        locked = false;
     }
     
     private VBox activateAudioButton()
@@ -190,20 +647,18 @@ public class ConnectFour extends Application
                 if (btnAudio.getGraphic().equals(imgViewSoundOn))
                 {
                     btnAudio.setGraphic(imgViewSoundOff);
-                    mPlayerWin.setMute(true);
-                    mPlayerFill.setMute(true);
+                    sounds.setMuted(true);
                 }
                 else
                 {
                     btnAudio.setGraphic(imgViewSoundOn);
-                    mPlayerWin.setMute(false);
-                    mPlayerFill.setMute(false);
+                    sounds.setMuted(false);
                 }            
             });
 
             Slider slVolume = new Slider(0, 100, 50);
             slVolume.setOrientation(Orientation.VERTICAL);
-            loadMediaPlayers(slVolume);
+            sounds.volumeProperty().bind(slVolume.valueProperty().divide(100));
 
             vbVolume.getChildren().addAll(slVolume, btnAudio);
         }
@@ -214,68 +669,29 @@ public class ConnectFour extends Application
         return vbVolume;
     }
 
-    private void loadMediaPlayers(Slider slVolume)
+    public class Slot
     {
-        try
-        {
-            
-            URL resourceWinSound = getClass().getResource("resources/fireworks.mp3");
-            Media mediaWin = new Media(resourceWinSound.toExternalForm());
-            mPlayerWin = new MediaPlayer(mediaWin);
-            mPlayerWin.volumeProperty().bind(slVolume.valueProperty().divide(100));
-
-            URL resourceFillSound = getClass().getResource("resources/tap.mp3");
-            Media mediaFill = new Media(resourceFillSound.toExternalForm());        
-            mPlayerFill = new MediaPlayer(mediaFill);
-            mPlayerFill.volumeProperty().bind(slVolume.valueProperty().divide(100));
-        }
-        catch(SecurityException | IllegalArgumentException |  UnsupportedOperationException | MediaException ex)
-        {
-            System.err.println(ex.getMessage());
-        }
-    }
-    
-    public class Slot extends Pane
-    {
-        boolean filled;
-        Circle coin;
         int slotX;
         int slotY;
         
-        public Slot()
+        public Color getFill()
         {
-            filled = false;
-            coin = new Circle();
-            coin.setRadius((BOARD_WIDTH / NUM_COLUMNS) / 2.5 - PADDING);
-            coin.setFill(Player.EMPTY.getColor());
-            coin.setStroke(Color.BLACK);
-            coin.setOnMouseClicked(new CoinClickHandler());
-            getChildren().add(coin);
+            return view.getFill(slotX, slotY);
         }
         
-        public void setFilled(boolean state)
+        public void setFill(Color color)
         {
-            this.filled = state;
-        }
-        
-        public boolean isFilled()
-        {
-            return filled;
-        }
-        
-        public Circle getCoin()
-        {
-            return coin;
+            view.setFill(slotX, slotY, color);
         }
         
         public void setFill(Player player)
         {
-            coin.setFill(player.getColor());
+            setFill(player.getColor());
         }
 
         public void resetFill()
         {
-            coin.setFill(Player.EMPTY.getColor());
+            setFill(Player.EMPTY.getColor());
         }
         
         public void setX(int posX)
@@ -298,290 +714,88 @@ public class ConnectFour extends Application
             return slotY;
         }
         
-        private class CoinClickHandler implements EventHandler<MouseEvent>
-        {
-            @Override
-            public void handle(MouseEvent e)
-            {
-                if (validSlot())
-                {
-                    lockBoard();
-                    Timeline animation = coinDropAnim(whoseUp);
-                    /*
-                    Coin has reached terminal position
-                    */
-                    animation.setOnFinished(ev ->
-                    {
-                        slotFilledCounter++;
-                        coin.setFill(whoseUp.getColor());
-                        unLockBoard();
-                        gridPlayers[slotX][slotY] = whoseUp;
-                        gameWon = checkWinner(whoseUp);
-                        if (gameWon)
-                        {
-                            broadcastWinner();
-                        }
-                        else
-                        {
-                            draw = checkDraw();
-                            if (draw)
-                            {
-                                broadcastDraw();
-                            }
-                            else
-                            {
-                                whoseUp = switchPlayer();
-                                lblMessage.setTextFill(whoseUp.getColor());
-                                lblMessage.setText(whoseUp + " Player's Turn");                                
-                            }
-                        }
-                        mPlayerFill.stop();
-                        mPlayerFill.play();                        
-                    });
-                }
-            }
-        }
-        
-        private boolean validSlot()
-        {
-            return (slotY == NUM_ROWS - 1 || !Player.EMPTY.equals(gridPlayers[slotX][slotY + 1])) 
-                    && !isFilled();
-        }
-            
-        private Timeline coinDropAnim(Player player)
+        private void clicked()
         {
-            ArrayList<ConnectFour.Slot> emptySlots = new ArrayList<>();
-            for (int i = 0; i <= slotY; i++)
+            if (animator != null && animator.isAnimating())
             {
-                emptySlots.add(gridSlots[slotX][i]);
+                animator.fastForward();
             }
-
-            Color fillColor = player.getColor();
-
-            Timeline dropCoinAnim = new Timeline(new KeyFrame(Duration.millis(150), e ->
+            else if (validSlot())
             {
-                if (numCycles > 0)
-                {
-                    ConnectFour.Slot flashOff = emptySlots.get(numCycles - 1);
-                    Circle turnOff = flashOff.getCoin();
-                    turnOff.setFill(Player.EMPTY.getColor());
-                }
-
-                ConnectFour.Slot flashOn = emptySlots.get(numCycles);
-                Circle c = flashOn.getCoin();
-                c.setFill(fillColor);
-
-                numCycles++;                
-            }));
-            dropCoinAnim.setCycleCount(emptySlots.size());
-            dropCoinAnim.play();
-            numCycles = 0;
-
-            return dropCoinAnim;
-        }
-        
-        private boolean checkDraw()
-        {
-            return slotFilledCounter == NUM_SLOTS;
-        }
-        
-        private void broadcastDraw()
-        {
-            try
-            {
-            lblMessage.setTextFill(Color.GREEN);
-            lblMessage.setText("It's a draw");
-            URL resourceDrawSound = this.getClass().getResource("draw.mp3");
-            Media mediaDrawSound = new Media(resourceDrawSound.toExternalForm());
-            mPlayerDrawSound = new MediaPlayer(mediaDrawSound);
-            mPlayerDrawSound.play();
-            }
-            catch (SecurityException | IllegalArgumentException |  UnsupportedOperationException | MediaException ex )
-            {
-                System.err.println(ex.getMessage());
+                dropCoin();
             }
         }
         
-        private boolean checkWinner(Player player)
-        {
-            Color playerColor = player.getColor();
-            if (rowConnect(playerColor))
-                return true;
-            else if (colConnect(playerColor))
-                return true;
-            else if (posDiagonalConnect(playerColor))
-                return true;
-            else if (negDiagonalConnect(playerColor))
-                return true;
-            else
-                return false;
-        }
-    
-        private boolean rowConnect(Color playerColor)
+        private void dropCoin()
         {
-            int count;
-            for (int i = 0; i < NUM_ROWS; i++)
+            lockBoard();
+            stopHints();
+            moveStarted = System.nanoTime();
+            /*
+            Coin has reached terminal position
+            */
+            animator().drop(slotX, slotY, whoseUp.getColor(), () ->
             {
-                count = 0;
-                alWinnerSlot.clear();
-                for (int j = 0; j < NUM_COLUMNS; j++)
+                metrics.moves().record(System.nanoTime() - moveStarted);
+                unLockBoard();
+                history.play(slotX);
+                updateNavigation();
+                events.publish(GameEvent.Type.MOVE_PLAYED, gameNumber, board.getPly(), slotX, 1 - board.sideToMove());
+                if (StartupProfile.mark("first move"))
                 {
-                    if (gridPlayers[j][i].getColor().equals(playerColor))
-                    {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[j][i];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }
-                    }
-                    else
-                    {
-                        count = 0;
-                        alWinnerSlot.clear();
-                    }
+                    reportStartup();
                 }
-            }
-            return false;
-        }
-
-        private boolean colConnect(Color playerColor)
-        {
-            int count;
-            for (int i = 0; i < NUM_COLUMNS; i++)
-            {
-                count = 0;
-                alWinnerSlot.clear();
-                for (int j = 0; j < NUM_ROWS; j++)
+                long checkStarted = System.nanoTime();
+                gameWon = checkWinner();
+                metrics.winChecks().record(System.nanoTime() - checkStarted);
+                if (gameWon)
+                {
+                    events.publish(GameEvent.Type.GAME_WON, gameNumber, board.getPly(), -1, 1 - board.sideToMove());
+                    broadcastWinner();
+                }
+                else
                 {
-                    if (gridPlayers[i][j].getColor().equals(playerColor))
+                    draw = checkDraw();
+                    if (draw)
                     {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[i][j];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }
+                        events.publish(GameEvent.Type.DRAW, gameNumber, board.getPly(), -1, -1);
+                        broadcastDraw();
                     }
                     else
                     {
-                        count = 0;
-                        alWinnerSlot.clear();
+                        whoseUp = switchPlayer();
+                        events.publish(GameEvent.Type.TURN_CHANGED, gameNumber, board.getPly(), -1, board.sideToMove());
+                        lblMessage.setTextFill(whoseUp.getColor());
+                        lblMessage.setText(whoseUp + " Player's Turn");                                
+                        requestComputerMove();
+                        startHints();
                     }
                 }
-            }
-            return false;
+                sounds.play(SoundBank.Sound.FILL);
+            });
         }
-
-        private boolean posDiagonalConnect(Color playerColor)
+        
+        private boolean validSlot()
         {
-            int count = 0;
-            for (int h = 0; h < 3; h++)
-            {
-                int i = h + 3;
-                count = 0;
-                alWinnerSlot.clear();
-                for (int j = 0; j < h + 4; i--, j++)
-                {
-                    if (playerColor.equals(gridPlayers[i][j].getColor()))
-                    {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[i][j];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }
-                    }
-                    else 
-                    {
-                        count = 0;
-                        alWinnerSlot.clear();
-                    }
-                }
-            }
-
-            for (int h = 0; h < 3; h++)
-            {
-                int i = 5;
-                count = 0;
-                alWinnerSlot.clear();
-                for (int j = h + 1; j < NUM_ROWS; i--, j++)
-                {
-                    if (playerColor.equals(gridPlayers[i][j].getColor()))
-                    {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[i][j];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }
-                    }
-                    else 
-                    {
-                        count = 0;
-                        alWinnerSlot.clear();
-                    }
-                }
-            }
-            return false;
+            return !locked && board.canPlay(slotX) && board.getHeight(slotX) == numRows - 1 - slotY;
         }
-
-        private boolean negDiagonalConnect(Color playerColor)
+            
+        private boolean checkDraw()
         {
-            //Check negative diagonals
-            int count;
-            for (int h = 0; h < 3; h++)
-            {
-                count = 0;
-                alWinnerSlot.clear();
-                for (int i = 0, j = h + 1; j < NUM_ROWS; i++, j++)
-                {
-                    if (playerColor.equals(gridPlayers[i][j].getColor()))
-                    {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[i][j];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }        
-                    }
-                    else
-                    {
-                        count = 0;
-                        alWinnerSlot.clear();
-                    } 
-                }
-            }
-
-            for (int h = 0; h < 3; h++)
-            {
-                count = 0;
-                alWinnerSlot.clear();
-                for (int i = h, j = 0; j < NUM_COLUMNS - h; i++, j++)
-                {
-                    if (playerColor.equals(gridPlayers[i][j].getColor()))
-                    {
-                        count++;
-                        ConnectFour.Slot slot = gridSlots[i][j];
-                        alWinnerSlot.add(slot);
-                        if (count == 4)
-                        {
-                            return true;
-                        }        
-                    }
-                    else
-                    {
-                        count = 0;
-                        alWinnerSlot.clear();
-                    } 
-                }
-            }
-            return false;
+            return board.isFull();
+        }
+        
+        private void broadcastDraw()
+        {
+            lblMessage.setTextFill(Color.GREEN);
+            lblMessage.setText("It's a draw");
+            sounds.play(SoundBank.Sound.DRAW);
+        }
+        
+        private boolean checkWinner()
+        {
+            winningLine = board.lastMoveLine();
+            return winningLine >= 0;
         }
         
         private Player switchPlayer()
@@ -596,7 +810,7 @@ public class ConnectFour extends Application
         private void broadcastWinner()
         {
             lockBoard();
-            mPlayerWin.play();
+            sounds.play(SoundBank.Sound.WIN);
             
             lblMessage.setTextFill(whoseUp.getColor());
             lblMessage.setText(whoseUp + " Player Wins");
@@ -607,13 +821,17 @@ public class ConnectFour extends Application
             colorArray.add(Color.GREEN);
             colorArray.add(Color.CYAN);
 
+            ArrayList<Slot> winnerSlots = new ArrayList<>();
+            for (int cell : geometry.getLineCells(winningLine))
+            {
+                winnerSlots.add(gridSlots[geometry.column(cell)][numRows - 1 - geometry.row(cell)]);
+            }
+
             animSlots = new Timeline(new KeyFrame(Duration.millis(300), e ->
             {
-                for (int i = 0; i < alWinnerSlot.size(); i++)
+                for (int i = 0; i < winnerSlots.size(); i++)
                 {
-                    ConnectFour.Slot s = alWinnerSlot.get(i);
-                    Circle c = s.getCoin();
-                    c.setFill(colorArray.get(i));
+                    winnerSlots.get(i).setFill(colorArray.get(i % colorArray.size()));
                 }
                 int size = colorArray.size();
                 Color c = colorArray.get(size - 1);
@@ -623,25 +841,6 @@ public class ConnectFour extends Application
             animSlots.setCycleCount(Timeline.INDEFINITE);
             animSlots.play();
         }
-        
-        private void lockBoard()
-        {
-            for (Slot slot: alSlot)
-            {
-                slot.setFilled(true);
-            }
-        }
-        
-        private void unLockBoard()
-        {
-            for (Slot slot: alSlot)
-            {
-                if (slot.getCoin().getFill().equals(Color.WHITE))
-                {
-                    slot.setFilled(false);
-                }
-            }
-        }
- 
+
     }            
 }
@@ -1,9 +1,57 @@
 package game;
 
+import game.bench.Benchmarks;
+import game.record.GameIndexBuilder;
+import game.record.GameRecordReader;
+import game.server.GameServer;
+import game.server.LoadGenerator;
+import game.sim.BatchSolver;
+import game.sim.SelfPlay;
+import game.sim.Tournament;
+import game.tablebase.TablebaseGenerator;
+import java.util.Arrays;
+
 public class Driver 
 {
-    public static void main(String[] args)
+    public static void main(String[] args) throws Exception
     {
-        ConnectFour.entry(args);
+        String mode = args.length > 0 ? args[0] : "";
+        String[] rest = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+        switch (mode)
+        {
+            case "simulate":
+                SelfPlay.main(rest);
+                break;
+            case "tournament":
+                Tournament.main(rest);
+                break;
+            case "solve":
+                BatchSolver.main(rest);
+                break;
+            case "tablebase":
+                TablebaseGenerator.main(rest);
+                break;
+            case "bench":
+                Benchmarks.main(rest);
+                break;
+            case "server":
+                GameServer.main(rest);
+                break;
+            case "load":
+                LoadGenerator.main(rest);
+                break;
+            case "records":
+                GameRecordReader.main(rest);
+                break;
+            case "index":
+                GameIndexBuilder.main(rest);
+                break;
+            case "ui-stress":
+                ReplayHarness.main(rest);
+                break;
+            default:
+                StartupProfile.mark("main");
+                ConnectFour.entry(args);
+        }
     }
 }
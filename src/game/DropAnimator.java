@@ -0,0 +1,180 @@
+package game;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.paint.Color;
+
+/*
+Drives every disc drop on one board from a single AnimationTimer.  Drops
+queue up and play one after another, a drop can be fast-forwarded to where
+it lands, and a step time of 0 lands discs at once.  Pending drops live in
+fixed ring arrays, so starting a drop allocates nothing.
+*/
+class DropAnimator
+{
+    private final BoardView view;
+    private final int[] columns;
+    private final int[] targets;
+    private final Color[] colors;
+    private final Runnable[] landed;
+    private int head;
+    private int count;
+
+    private long stepNanos;
+    private int row = -1;
+    private long nextStep;
+    private boolean running;
+    private long lastFrame;
+    private Timing frames;
+
+    private final AnimationTimer timer = new AnimationTimer()
+    {
+        @Override
+        public void handle(long now)
+        {
+            advance(now);
+        }
+    };
+
+    DropAnimator(BoardView view, int capacity, long stepMillis)
+    {
+        this.view = view;
+        columns = new int[capacity];
+        targets = new int[capacity];
+        colors = new Color[capacity];
+        landed = new Runnable[capacity];
+        setStepMillis(stepMillis);
+    }
+
+    /*
+    Records the time between animation frames while discs are falling
+    */
+    void setFrameTiming(Timing frames)
+    {
+        this.frames = frames;
+    }
+
+    void setStepMillis(long stepMillis)
+    {
+        stepNanos = stepMillis * 1_000_000L;
+    }
+
+    /*
+    Queues a disc falling down column x to row y, counted from the top;
+    onLanded runs once it is there
+    */
+    void drop(int x, int y, Color color, Runnable onLanded)
+    {
+        if (count == columns.length)
+        {
+            throw new IllegalStateException("Too many drops queued");
+        }
+        int slot = (head + count++) % columns.length;
+        columns[slot] = x;
+        targets[slot] = y;
+        colors[slot] = color;
+        landed[slot] = onLanded;
+        if (stepNanos == 0)
+        {
+            fastForward();
+        }
+        else if (!running)
+        {
+            running = true;
+            row = -1;
+            nextStep = 0;
+            timer.start();
+        }
+    }
+
+    boolean isAnimating()
+    {
+        return count > 0;
+    }
+
+    /*
+    Lands every queued disc right away
+    */
+    void fastForward()
+    {
+        while (count > 0)
+        {
+            if (row >= 0)
+            {
+                view.setFill(columns[head], row, Player.EMPTY.getColor());
+            }
+            row = targets[head];
+            view.setFill(columns[head], row, colors[head]);
+            land();
+        }
+        timer.stop();
+        running = false;
+    }
+
+    /*
+    Drops everything queued without calling back, e.g. for a new game, and
+    takes the falling disc off the board
+    */
+    void clear()
+    {
+        timer.stop();
+        running = false;
+        if (count > 0 && row >= 0)
+        {
+            view.setFill(columns[head], row, Player.EMPTY.getColor());
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int slot = (head + i) % columns.length;
+            colors[slot] = null;
+            landed[slot] = null;
+        }
+        count = 0;
+        row = -1;
+    }
+
+    private void advance(long now)
+    {
+        if (nextStep == 0)
+        {
+            nextStep = now + stepNanos;
+            lastFrame = now;
+            return;
+        }
+        if (frames != null)
+        {
+            frames.record(now - lastFrame);
+        }
+        lastFrame = now;
+        while (count > 0 && now >= nextStep)
+        {
+            int x = columns[head];
+            if (row >= 0)
+            {
+                view.setFill(x, row, Player.EMPTY.getColor());
+            }
+            row++;
+            view.setFill(x, row, colors[head]);
+            nextStep += stepNanos;
+            if (row == targets[head])
+            {
+                land();
+            }
+        }
+        if (count == 0)
+        {
+            timer.stop();
+            running = false;
+        }
+    }
+
+    private void land()
+    {
+        Runnable callback = landed[head];
+        colors[head] = null;
+        landed[head] = null;
+        head = (head + 1) % columns.length;
+        count--;
+        row = -1;
+        callback.run();
+    }
+}
@@ -0,0 +1,213 @@
+package game;
+
+import game.event.EventBus;
+import game.event.GameEvent;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+Counters for one game window: how long a move takes from the click until
+the disc lands, how long the win check takes, how long animation frames
+are, how games end and how fast the computer searches.  Everything is kept
+in LongAdders so the application and computer threads never contend.  Game
+results are counted from the window's event bus.
+*/
+public class GameMetrics implements GameMetricsMBean, EventBus.Subscriber
+{
+    private final Timing moves = new Timing();
+    private final Timing winChecks = new Timing();
+    private final Timing frames = new Timing();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder gamesWon = new LongAdder();
+    private final LongAdder gamesDrawn = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private volatile double tableHitRate = Double.NaN;
+    private ScheduledExecutorService logger;
+
+    Timing moves()
+    {
+        return moves;
+    }
+
+    Timing winChecks()
+    {
+        return winChecks;
+    }
+
+    Timing frames()
+    {
+        return frames;
+    }
+
+    void gameStarted()
+    {
+        gamesStarted.increment();
+    }
+
+    @Override
+    public void onEvent(GameEvent event)
+    {
+        if (event.getType() == GameEvent.Type.GAME_WON)
+            gamesWon.increment();
+        else if (event.getType() == GameEvent.Type.DRAW)
+            gamesDrawn.increment();
+    }
+
+    /*
+    hitRate is NaN for searches without a transposition table
+    */
+    void searched(long nodes, long nanos, double hitRate)
+    {
+        searches.increment();
+        searchNodes.add(nodes);
+        searchNanos.add(nanos);
+        tableHitRate = hitRate;
+    }
+
+    /*
+    Publishes the counters on the platform MBean server
+    */
+    void register()
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("game:type=GameMetrics"));
+        }
+        catch (JMException ex)
+        {
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    /*
+    Prints a summary line to standard out every period seconds
+    */
+    void logEvery(long seconds)
+    {
+        logger = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            Thread thread = new Thread(r, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> System.out.println(this), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public long getMovesHandled()
+    {
+        return moves.getCount();
+    }
+
+    @Override
+    public double getMoveLatencyMeanMillis()
+    {
+        return moves.getMeanMillis();
+    }
+
+    @Override
+    public double getMoveLatencyMaxMillis()
+    {
+        return moves.getMaxMillis();
+    }
+
+    @Override
+    public double getWinCheckMeanMillis()
+    {
+        return winChecks.getMeanMillis();
+    }
+
+    @Override
+    public double getWinCheckMaxMillis()
+    {
+        return winChecks.getMaxMillis();
+    }
+
+    @Override
+    public long getFrames()
+    {
+        return frames.getCount();
+    }
+
+    @Override
+    public double getFrameMeanMillis()
+    {
+        return frames.getMeanMillis();
+    }
+
+    @Override
+    public double getFrameMaxMillis()
+    {
+        return frames.getMaxMillis();
+    }
+
+    @Override
+    public long getGamesStarted()
+    {
+        return gamesStarted.sum();
+    }
+
+    @Override
+    public long getGamesWon()
+    {
+        return gamesWon.sum();
+    }
+
+    @Override
+    public long getGamesDrawn()
+    {
+        return gamesDrawn.sum();
+    }
+
+    @Override
+    public long getSearches()
+    {
+        return searches.sum();
+    }
+
+    @Override
+    public double getSearchNodesPerSecond()
+    {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : searchNodes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getTableHitRate()
+    {
+        return tableHitRate;
+    }
+
+    @Override
+    public void reset()
+    {
+        moves.reset();
+        winChecks.reset();
+        frames.reset();
+        gamesStarted.reset();
+        gamesWon.reset();
+        gamesDrawn.reset();
+        searches.reset();
+        searchNodes.reset();
+        searchNanos.reset();
+        tableHitRate = Double.NaN;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("games %d won %d drawn %d | moves %d avg %.2f ms max %.2f ms | win check avg %.4f ms"
+                + " | frames %d avg %.2f ms max %.2f ms | searches %d %.0f nodes/s table hits %.1f%%",
+                getGamesStarted(), getGamesWon(), getGamesDrawn(),
+                getMovesHandled(), getMoveLatencyMeanMillis(), getMoveLatencyMaxMillis(), getWinCheckMeanMillis(),
+                getFrames(), getFrameMeanMillis(), getFrameMaxMillis(),
+                getSearches(), getSearchNodesPerSecond(), getTableHitRate() * 100);
+    }
+}
@@ -0,0 +1,38 @@
+package game;
+
+/*
+What the game window publishes over JMX, under game:type=GameMetrics.
+Durations are in milliseconds.
+*/
+public interface GameMetricsMBean
+{
+    long getMovesHandled();
+
+    double getMoveLatencyMeanMillis();
+
+    double getMoveLatencyMaxMillis();
+
+    double getWinCheckMeanMillis();
+
+    double getWinCheckMaxMillis();
+
+    long getFrames();
+
+    double getFrameMeanMillis();
+
+    double getFrameMaxMillis();
+
+    long getGamesStarted();
+
+    long getGamesWon();
+
+    long getGamesDrawn();
+
+    long getSearches();
+
+    double getSearchNodesPerSecond();
+
+    double getTableHitRate();
+
+    void reset();
+}
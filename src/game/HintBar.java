@@ -0,0 +1,148 @@
+package game;
+
+import game.ai.Analyzer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/*
+A bar and a score under every column showing the analysis of the current
+position: full green for a forced win, empty red for a forced loss, and
+in between for the evaluation.  The analysis thread may report hundreds of
+times a second; only its latest scores are kept, and at most one update
+waits on the application thread at any time, so repainting never falls
+behind the frames.
+*/
+class HintBar
+{
+    private static final double BAR_HEIGHT = 30;
+    private static final double SCALE = 32;
+
+    private final HBox box = new HBox();
+    private final Rectangle[] bars;
+    private final Label[] labels;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Scores latest;
+
+    /*
+    Scores of one analysis, tagged with its generation so a stale update is
+    never drawn after clear or a newer analysis
+    */
+    private static final class Scores
+    {
+        final int generation;
+        final int[] values;
+
+        Scores(int generation, int[] values)
+        {
+            this.generation = generation;
+            this.values = values;
+        }
+    }
+
+    HintBar(int columns, double radius, double padding)
+    {
+        box.setAlignment(Pos.CENTER);
+        box.setSpacing(padding);
+        bars = new Rectangle[columns];
+        labels = new Label[columns];
+        for (int col = 0; col < columns; col++)
+        {
+            bars[col] = new Rectangle(2 * radius, 0);
+            labels[col] = new Label();
+            labels[col].setMinWidth(2 * radius);
+            labels[col].setAlignment(Pos.CENTER);
+            VBox column = new VBox(bars[col], labels[col]);
+            column.setAlignment(Pos.BOTTOM_CENTER);
+            column.setMinHeight(BAR_HEIGHT);
+            box.getChildren().add(column);
+        }
+    }
+
+    Node getNode()
+    {
+        return box;
+    }
+
+    /*
+    A listener for one analysis; it goes quiet once clear is called
+    */
+    Analyzer.Listener track()
+    {
+        int current = generation.incrementAndGet();
+        return (scores, depth) ->
+        {
+            if (generation.get() != current)
+            {
+                return;
+            }
+            latest = new Scores(current, scores);
+            if (scheduled.compareAndSet(false, true))
+            {
+                Platform.runLater(this::show);
+            }
+        };
+    }
+
+    void clear()
+    {
+        generation.incrementAndGet();
+        latest = null;
+        for (int col = 0; col < bars.length; col++)
+        {
+            bars[col].setHeight(0);
+            labels[col].setText("");
+        }
+    }
+
+    /*
+    Draws whatever the current analysis reported last.  scheduled is cleared
+    first, so scores that arrive after latest is read schedule another show.
+    */
+    private void show()
+    {
+        scheduled.set(false);
+        Scores latest = this.latest;
+        if (latest == null || latest.generation != generation.get())
+        {
+            return;
+        }
+        int[] scores = latest.values;
+        for (int col = 0; col < bars.length; col++)
+        {
+            int score = scores[col];
+            double share;
+            if (score == Analyzer.NONE)
+            {
+                bars[col].setHeight(0);
+                labels[col].setText("");
+                continue;
+            }
+            else if (Analyzer.isWin(score))
+            {
+                share = 1;
+                labels[col].setText("win");
+            }
+            else if (Analyzer.isLoss(score))
+            {
+                share = 0;
+                labels[col].setText("loss");
+            }
+            else
+            {
+                share = 0.5 + 0.5 * Math.tanh(score / SCALE);
+                labels[col].setText(Integer.toString(score));
+            }
+            bars[col].setHeight(Math.max(2, share * BAR_HEIGHT));
+            bars[col].setFill(Color.RED.interpolate(Color.GREEN, share));
+        }
+    }
+}
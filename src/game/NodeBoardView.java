@@ -0,0 +1,70 @@
+package game;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+
+/*
+The original look: one Circle node per cell in a GridPane, each with its
+own click handler
+*/
+class NodeBoardView implements BoardView
+{
+    private final GridPane grid = new GridPane();
+    private final Circle[][] coins;
+    private CellClickHandler handler;
+
+    NodeBoardView(int columns, int rows, double radius, double padding)
+    {
+        coins = new Circle[columns][rows];
+        grid.setAlignment(Pos.CENTER);
+        grid.setVgap(padding);
+        grid.setHgap(padding);
+        for (int i = 0; i < rows; i++)
+        {
+            for (int j = 0; j < columns; j++)
+            {
+                Circle coin = new Circle(radius);
+                coin.setFill(Player.EMPTY.getColor());
+                coin.setStroke(Color.BLACK);
+                int x = j;
+                int y = i;
+                coin.setOnMouseClicked(e ->
+                {
+                    if (handler != null)
+                    {
+                        handler.clicked(x, y);
+                    }
+                });
+                grid.add(coin, j, i);
+                coins[j][i] = coin;
+            }
+        }
+    }
+
+    @Override
+    public Node getNode()
+    {
+        return grid;
+    }
+
+    @Override
+    public void setFill(int x, int y, Color color)
+    {
+        coins[x][y].setFill(color);
+    }
+
+    @Override
+    public Color getFill(int x, int y)
+    {
+        return (Color) coins[x][y].getFill();
+    }
+
+    @Override
+    public void setOnCellClicked(CellClickHandler handler)
+    {
+        this.handler = handler;
+    }
+}
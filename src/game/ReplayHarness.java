@@ -0,0 +1,453 @@
+package game;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import game.record.GameRecordReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/*
+Stress run of the game window: replays games on the real ConnectFour stage
+at a chosen pace and measures whether the scene keeps up.  Moves go through
+the same click path as a person's, and a finished game stays up long enough
+for the winner's celebration before the next one starts.
+
+Every pulse is timed with the scene's pulse listeners: the time from one
+pulse to the next, and the part of it spent on CSS and layout.  The replay
+itself runs from an AnimationTimer, which asks for a pulse every frame, so
+a pulse interval longer than one and a half frame periods means frames were
+dropped.  Heap use, garbage collections and what the application thread
+allocates are sampled from start to end.
+
+The report is a properties file.  Given the report of an earlier run as
+--baseline, the run fails with exit status 1 when a pulse, layout, dropped
+frame or allocation figure got worse than the baseline by more than the
+tolerance, so a build can catch rendering regressions.
+
+Games come from an archive, from a file of move sequences written as for
+BatchSolver, or else are random.  Build hosts without a display run it with
+--headless, which selects Monocle's headless glass platform and the software
+renderer and needs the OpenJFX Monocle jar on the class path; --software
+only switches to the software renderer.  Other options, e.g. --drop-speed,
+--renderer or --geometry, go to the game window as usual.
+
+    java game.Driver ui-stress [--archive=games.bin | --in=moves.txt] [--games=50]
+        [--move-millis=100] [--end-millis=1000] [--warmup-millis=2000]
+        [--headless | --software] [--out=ui-stress.properties]
+        [--baseline=file] [--tolerance=1.25]
+*/
+public class ReplayHarness extends ConnectFour
+{
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    // read by main before the toolkit creates the harness
+    private static List<int[]> games;
+    private static int exitStatus;
+
+    private final Samples intervals = new Samples();
+    private final Samples layouts = new Samples();
+    private long droppedFrames;
+    private long lastPulse;
+    private long layoutStarted;
+    private boolean measuring;
+
+    private Arguments arguments;
+    private long moveNanos;
+    private long endNanos;
+    private int game;
+    private int ply;
+    private long lastMove;
+    private long gameOverSince;
+    private long played;
+
+    private long startNanos;
+    private long startAllocated;
+    private long startHeap;
+    private long startCollections;
+    private long startCollectionMillis;
+
+    public static void main(String[] args) throws IOException
+    {
+        Arguments arguments = new Arguments(args);
+        if (arguments.has("ai"))
+        {
+            System.err.println("The replay plays both sides; leave out --ai");
+            return;
+        }
+        if (arguments.has("headless"))
+        {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+        }
+        if (arguments.has("headless") || arguments.has("software"))
+        {
+            System.setProperty("prism.order", "sw");
+        }
+        games = loadGames(arguments, Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString())));
+        if (games.isEmpty())
+        {
+            System.err.println("No games to replay");
+            return;
+        }
+        Application.launch(ReplayHarness.class, args);
+        if (exitStatus != 0)
+        {
+            System.exit(exitStatus);
+        }
+    }
+
+    private static List<int[]> loadGames(Arguments arguments, Geometry geometry) throws IOException
+    {
+        int count = arguments.getInt("games", 50);
+        List<int[]> loaded = new ArrayList<>();
+        if (arguments.has("archive"))
+        {
+            try (GameRecordReader reader = new GameRecordReader(Paths.get(arguments.get("archive", ""))))
+            {
+                while (loaded.size() < count && reader.next())
+                {
+                    if (reader.getGeometry() == geometry)
+                    {
+                        int[] moves = new int[reader.getMoveCount()];
+                        for (int i = 0; i < moves.length; i++)
+                        {
+                            moves[i] = reader.getMove(i);
+                        }
+                        loaded.add(moves);
+                    }
+                }
+            }
+        }
+        else if (arguments.has("in"))
+        {
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(arguments.get("in", ""))))
+            {
+                String line;
+                while (loaded.size() < count && (line = in.readLine()) != null)
+                {
+                    String moves = line.trim().split(" ")[0];
+                    int[] columns = new int[moves.length()];
+                    for (int i = 0; i < columns.length; i++)
+                    {
+                        columns[i] = Character.digit(moves.charAt(i), 36) - 1;
+                    }
+                    loaded.add(columns);
+                }
+            }
+        }
+        else
+        {
+            SplittableRandom random = new SplittableRandom(arguments.getLong("seed", 1));
+            Board board = new Board(geometry);
+            for (int g = 0; g < count; g++)
+            {
+                board.reset();
+                while (!board.isFull() && !board.lastMoveWins())
+                {
+                    int col;
+                    do
+                    {
+                        col = random.nextInt(geometry.getColumns());
+                    }
+                    while (!board.canPlay(col));
+                    board.play(col);
+                }
+                int[] moves = new int[board.getPly()];
+                for (int i = 0; i < moves.length; i++)
+                {
+                    moves[i] = board.getMove(i);
+                }
+                loaded.add(moves);
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void start(Stage primaryStage)
+    {
+        super.start(primaryStage);
+        arguments = new Arguments(getParameters().getRaw().toArray(new String[0]));
+        moveNanos = arguments.getLong("move-millis", 100) * 1_000_000L;
+        endNanos = arguments.getLong("end-millis", 1000) * 1_000_000L;
+        long warmupNanos = arguments.getLong("warmup-millis", 2000) * 1_000_000L;
+
+        Scene scene = primaryStage.getScene();
+        scene.addPreLayoutPulseListener(() ->
+        {
+            long now = System.nanoTime();
+            if (measuring && lastPulse != 0)
+            {
+                long interval = now - lastPulse;
+                intervals.add(interval);
+                if (interval > FRAME_NANOS * 3 / 2)
+                {
+                    droppedFrames += Math.round((double) interval / FRAME_NANOS) - 1;
+                }
+            }
+            lastPulse = now;
+            layoutStarted = now;
+        });
+        scene.addPostLayoutPulseListener(() ->
+        {
+            if (measuring)
+            {
+                layouts.add(System.nanoTime() - layoutStarted);
+            }
+        });
+
+        long launched = System.nanoTime();
+        new AnimationTimer()
+        {
+            @Override
+            public void handle(long now)
+            {
+                if (!measuring)
+                {
+                    if (System.nanoTime() - launched >= warmupNanos)
+                    {
+                        begin();
+                    }
+                }
+                else if (!step(System.nanoTime()))
+                {
+                    stop();
+                    finish();
+                }
+            }
+        }.start();
+    }
+
+    private void begin()
+    {
+        startNanos = System.nanoTime();
+        startAllocated = allocatedBytes();
+        startHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        startCollections = collections();
+        startCollectionMillis = collectionMillis();
+        lastPulse = 0;
+        measuring = true;
+    }
+
+    /*
+    Plays the next move once the last one has landed and its time is up,
+    or starts the next game; false when every game has been replayed
+    */
+    private boolean step(long now)
+    {
+        Board board = getBoard();
+        int[] moves = games.get(game);
+        if (isGameOver() || ply == moves.length)
+        {
+            if (gameOverSince == 0)
+            {
+                gameOverSince = now;
+            }
+            if (now - gameOverSince < endNanos)
+            {
+                return true;
+            }
+            if (++game == games.size())
+            {
+                return false;
+            }
+            newGame();
+            ply = 0;
+            gameOverSince = 0;
+            return true;
+        }
+        if (readyForMove() && now - lastMove >= moveNanos)
+        {
+            if (!board.canPlay(moves[ply]))
+            {
+                System.err.println("Game " + (game + 1) + " has an illegal move " + (ply + 1) + "; skipped");
+                ply = moves.length;
+                return true;
+            }
+            clickColumn(moves[ply++]);
+            played++;
+            lastMove = now;
+        }
+        return true;
+    }
+
+    private void finish()
+    {
+        measuring = false;
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long allocated = allocatedBytes() - startAllocated;
+        Map<String, Double> report = new LinkedHashMap<>();
+        report.put("games", (double) games.size());
+        report.put("moves", (double) played);
+        report.put("seconds", seconds);
+        report.put("pulses", (double) intervals.size());
+        report.put("pulse.mean.ms", intervals.mean() / 1e6);
+        report.put("pulse.p50.ms", intervals.percentile(0.50) / 1e6);
+        report.put("pulse.p99.ms", intervals.percentile(0.99) / 1e6);
+        report.put("pulse.max.ms", intervals.percentile(1.0) / 1e6);
+        report.put("layout.p50.ms", layouts.percentile(0.50) / 1e6);
+        report.put("layout.p99.ms", layouts.percentile(0.99) / 1e6);
+        report.put("layout.max.ms", layouts.percentile(1.0) / 1e6);
+        report.put("frames.dropped", (double) droppedFrames);
+        report.put("frames.dropped.percent", 100.0 * droppedFrames / Math.max(1, intervals.size() + droppedFrames));
+        report.put("alloc.mb.per.s", allocated / seconds / (1 << 20));
+        report.put("alloc.kb.per.move", played == 0 ? 0 : allocated / 1024.0 / played);
+        report.put("heap.start.mb", startHeap / (double) (1 << 20));
+        report.put("heap.end.mb",
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (double) (1 << 20));
+        report.put("gc.count", (double) (collections() - startCollections));
+        report.put("gc.ms", (double) (collectionMillis() - startCollectionMillis));
+
+        String out = arguments.get("out", "ui-stress.properties");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out))))
+        {
+            for (Map.Entry<String, Double> entry : report.entrySet())
+            {
+                String line = String.format(Locale.ROOT, "%s=%.3f", entry.getKey(), entry.getValue());
+                writer.println(line);
+                System.out.println(line);
+            }
+        }
+        catch (IOException ex)
+        {
+            System.err.println(ex.getMessage());
+            exitStatus = 2;
+        }
+        if (arguments.has("baseline"))
+        {
+            compare(report, arguments.get("baseline", ""), Double.parseDouble(arguments.get("tolerance", "1.25")));
+        }
+        Platform.exit();
+    }
+
+    /*
+    Flags every watched figure that got worse than the baseline's by more
+    than the tolerance factor and a small absolute margin, so noise on near
+    zero figures does not fail a run
+    */
+    private static void compare(Map<String, Double> report, String path, double tolerance)
+    {
+        Properties baseline = new Properties();
+        try (Reader in = Files.newBufferedReader(Paths.get(path)))
+        {
+            baseline.load(in);
+        }
+        catch (IOException ex)
+        {
+            System.err.println(ex.getMessage());
+            exitStatus = 2;
+            return;
+        }
+        String[] watched = {"pulse.p99.ms", "layout.p99.ms", "frames.dropped.percent", "alloc.kb.per.move"};
+        double[] margins = {1.0, 0.5, 0.5, 1.0};
+        for (int i = 0; i < watched.length; i++)
+        {
+            String before = baseline.getProperty(watched[i]);
+            if (before == null)
+            {
+                continue;
+            }
+            double was = Double.parseDouble(before);
+            double now = report.get(watched[i]);
+            if (now > was * tolerance && now - was > margins[i])
+            {
+                System.err.printf(Locale.ROOT, "REGRESSION %s: %.3f, baseline %.3f%n", watched[i], now, was);
+                exitStatus = 1;
+            }
+        }
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static long collections()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionMillis()
+    {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /*
+    Growing array of nanosecond samples
+    */
+    private static final class Samples
+    {
+        private long[] values = new long[1 << 12];
+        private int size;
+
+        void add(long value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        double mean()
+        {
+            long total = 0;
+            for (int i = 0; i < size; i++)
+            {
+                total += values[i];
+            }
+            return size == 0 ? 0 : (double) total / size;
+        }
+
+        double percentile(double fraction)
+        {
+            if (size == 0)
+            {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(size - 1, Math.max(0, Math.ceil(size * fraction) - 1))];
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package game;
+
+import java.net.URL;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
+import javafx.scene.media.MediaPlayer;
+
+/*
+Loads every sound clip once, on a background thread, and hands out the ready
+players.  Playing a clip that is still loading, missing or unplayable, or
+playing while muted, simply does nothing, so sound can never hold up a frame.
+*/
+class SoundBank
+{
+    enum Sound
+    {
+        WIN("resources/fireworks.mp3"),
+        FILL("resources/tap.mp3"),
+        DRAW("draw.mp3");
+
+        private final String resource;
+
+        Sound(String resource)
+        {
+            this.resource = resource;
+        }
+    }
+
+    // only touched on the application thread
+    private final MediaPlayer[] players = new MediaPlayer[Sound.values().length];
+    private final DoubleProperty volume = new SimpleDoubleProperty(0.5);
+    private boolean muted;
+    private boolean loading;
+
+    void preload()
+    {
+        if (loading)
+        {
+            return;
+        }
+        loading = true;
+        Thread loader = new Thread(() ->
+        {
+            for (Sound sound : Sound.values())
+            {
+                MediaPlayer player = load(sound);
+                if (player != null)
+                {
+                    Platform.runLater(() -> install(sound, player));
+                }
+            }
+        }, "sound-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private MediaPlayer load(Sound sound)
+    {
+        URL resource = SoundBank.class.getResource(sound.resource);
+        if (resource == null)
+        {
+            return null;
+        }
+        try
+        {
+            MediaPlayer player = new MediaPlayer(new Media(resource.toExternalForm()));
+            player.setOnError(() -> players[sound.ordinal()] = null);
+            return player;
+        }
+        catch (SecurityException | IllegalArgumentException | UnsupportedOperationException | MediaException ex)
+        {
+            System.err.println(ex.getMessage());
+            return null;
+        }
+    }
+
+    private void install(Sound sound, MediaPlayer player)
+    {
+        player.volumeProperty().bind(volume);
+        player.setMute(muted);
+        players[sound.ordinal()] = player;
+    }
+
+    void play(Sound sound)
+    {
+        MediaPlayer player = players[sound.ordinal()];
+        if (player != null && !muted)
+        {
+            player.stop();
+            player.play();
+        }
+    }
+
+    void stop(Sound sound)
+    {
+        MediaPlayer player = players[sound.ordinal()];
+        if (player != null)
+        {
+            player.stop();
+        }
+    }
+
+    void setMuted(boolean muted)
+    {
+        this.muted = muted;
+        for (MediaPlayer player : players)
+        {
+            if (player != null)
+            {
+                player.setMute(muted);
+            }
+        }
+    }
+
+    boolean isMuted()
+    {
+        return muted;
+    }
+
+    /*
+    Volume from 0 to 1 shared by every clip
+    */
+    DoubleProperty volumeProperty()
+    {
+        return volume;
+    }
+}
@@ -0,0 +1,65 @@
+package game;
+
+import java.io.PrintStream;
+
+/*
+Timestamps of the startup phases, measured from the moment the JVM started
+so class loading and JavaFX toolkit start-up are included.  Marking a phase
+is cheap enough to leave in always; the report is only printed when asked
+for with --startup-profile.
+*/
+final class StartupProfile
+{
+    private static final int MAX_PHASES = 16;
+    private static final long ORIGIN = origin();
+
+    private static final String[] names = new String[MAX_PHASES];
+    private static final long[] times = new long[MAX_PHASES];
+    private static int count;
+
+    private StartupProfile()
+    {
+    }
+
+    private static long origin()
+    {
+        long now = System.nanoTime();
+        long started = ProcessHandle.current().info().startInstant()
+                .map(instant -> instant.toEpochMilli())
+                .orElse(System.currentTimeMillis());
+        return now - Math.max(0, System.currentTimeMillis() - started) * 1_000_000L;
+    }
+
+    /*
+    Records the first time a phase is reached and returns true; later
+    marks of the same phase are ignored and return false
+    */
+    static synchronized boolean mark(String phase)
+    {
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++)
+        {
+            if (names[i].equals(phase))
+                return false;
+        }
+        if (count == MAX_PHASES)
+        {
+            return false;
+        }
+        names[count] = phase;
+        times[count++] = now;
+        return true;
+    }
+
+    static synchronized void report(PrintStream out)
+    {
+        long previous = ORIGIN;
+        out.printf("%-16s %10s %10s%n", "phase", "since jvm", "delta");
+        for (int i = 0; i < count; i++)
+        {
+            out.printf("%-16s %8.1f ms %8.1f ms%n", names[i],
+                    (times[i] - ORIGIN) / 1e6, (times[i] - previous) / 1e6);
+            previous = times[i];
+        }
+    }
+}
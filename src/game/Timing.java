@@ -0,0 +1,45 @@
+package game;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Count, total and worst case of a repeated duration.  Recording is a couple
+of striped adds, so it can sit on the move and frame paths.
+*/
+final class Timing
+{
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos)
+    {
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    long getCount()
+    {
+        return count.sum();
+    }
+
+    double getMeanMillis()
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / 1e6 / n;
+    }
+
+    double getMaxMillis()
+    {
+        return max.get() / 1e6;
+    }
+
+    void reset()
+    {
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
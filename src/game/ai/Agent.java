@@ -0,0 +1,14 @@
+package game.ai;
+
+import game.engine.Board;
+
+/*
+Something that can pick a move for the side to move, such as a search or
+a scripted opponent.  Implementations must leave the board as they found it.
+*/
+public interface Agent
+{
+    int selectMove(Board board, SearchBudget budget);
+
+    String getName();
+}
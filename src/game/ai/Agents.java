@@ -0,0 +1,44 @@
+package game.ai;
+
+import game.engine.Geometry;
+
+/*
+Builds agents from the names used on the command line:
+random, greedy, negamax:depth (depth defaults to 6) and mcts:playouts
+(a single threaded tree search with that many playouts per move, 10000 by
+default).  Each playout adds at most one node's children to the tree, so
+the tree is sized for the playouts on the given board rather than for the
+largest search.
+*/
+public final class Agents
+{
+    private static final int MAX_TREE_NODES = 1 << 18;
+
+    private Agents()
+    {
+    }
+
+    public static Agent create(String spec, Geometry geometry, long seed)
+    {
+        int colon = spec.indexOf(':');
+        String name = colon < 0 ? spec : spec.substring(0, colon);
+        String option = colon < 0 ? null : spec.substring(colon + 1);
+        switch (name)
+        {
+            case "random":
+                return new RandomAgent(seed);
+            case "greedy":
+                return new GreedyAgent(seed);
+            case "negamax":
+                return new NegamaxAgent(new TranspositionTable(16), option == null ? 6 : Integer.parseInt(option));
+            case "mcts":
+            {
+                long playouts = option == null ? 10_000 : Long.parseLong(option);
+                int nodes = (int) Math.min(MAX_TREE_NODES, playouts * geometry.getColumns() + 1);
+                return new MctsSearch(1, nodes, playouts, true, seed);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown player " + spec);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package game.ai;
+
+import game.engine.Board;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Scores every column of a position in the background, for hints while a
+person is thinking.  The columns are deepened together, one ply at a time,
+and the scores so far are handed to a listener after every column, so the
+hints sharpen while they are on screen.  Starting a new analysis cancels
+the running one.  The transposition table outlives each analysis, so
+after a move the entries for the positions that are still reachable
+are found again instead of being searched from scratch.
+*/
+public class Analyzer
+{
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /*
+    Receives the score of every column for the side to move, NONE for
+    columns that cannot be played, and the depth they were searched to.
+    Called on the analysis thread.
+    */
+    public interface Listener
+    {
+        void update(int[] scores, int depth);
+    }
+
+    private final TranspositionTable table;
+    private final ExecutorService thread;
+    private SearchBudget running;
+
+    /*
+    The table may be shared with other searches, e.g. the computer player's
+    */
+    public Analyzer(TranspositionTable table)
+    {
+        this.table = table;
+        thread = Executors.newSingleThreadExecutor(r ->
+        {
+            Thread analysis = new Thread(r, "analysis");
+            analysis.setDaemon(true);
+            analysis.setPriority(Thread.MIN_PRIORITY);
+            return analysis;
+        });
+    }
+
+    /*
+    Starts analysing a copy of position until it is solved or stopped
+    */
+    public synchronized void analyze(Board position, Listener listener)
+    {
+        stop();
+        Board board = new Board(position);
+        SearchBudget budget = SearchBudget.unlimited();
+        running = budget;
+        thread.execute(() -> run(board, listener, budget));
+    }
+
+    public synchronized void stop()
+    {
+        if (running != null)
+        {
+            running.cancel();
+            running = null;
+        }
+    }
+
+    /*
+    Forced wins and losses score near NegamaxAgent.WIN, far beyond anything
+    the evaluation gives
+    */
+    public static boolean isWin(int score)
+    {
+        return score != NONE && score >= NegamaxAgent.WIN / 2;
+    }
+
+    public static boolean isLoss(int score)
+    {
+        return score != NONE && score <= -NegamaxAgent.WIN / 2;
+    }
+
+    private void run(Board board, Listener listener, SearchBudget budget)
+    {
+        int columns = board.getGeometry().getColumns();
+        int[] scores = new int[columns];
+        boolean[] solved = new boolean[columns];
+        int open = 0;
+        for (int col = 0; col < columns; col++)
+        {
+            scores[col] = NONE;
+            if (!board.canPlay(col))
+            {
+                solved[col] = true;
+            }
+            else if (board.isWinningMove(col))
+            {
+                scores[col] = NegamaxAgent.WIN - board.getPly() - 1;
+                solved[col] = true;
+            }
+            else
+            {
+                open++;
+            }
+        }
+        listener.update(scores.clone(), 1);
+
+        // one analysis ages the shared table once, like one search of the
+        // computer's, rather than once for every column and depth
+        table.newSearch();
+        int remaining = board.getGeometry().getCells() - board.getPly();
+        for (int depth = 1; depth < remaining && open > 0; depth++)
+        {
+            NegamaxAgent search = new NegamaxAgent(table, depth);
+            search.setAgesTable(false);
+            for (int col : NegamaxAgent.centerOrder(board.getGeometry()))
+            {
+                if (solved[col])
+                    continue;
+                board.play(col);
+                SearchResult result = board.isFull() ? null : search.search(board, budget);
+                board.undo();
+                if (budget.isCancelled())
+                    return;
+                scores[col] = result == null ? 0 : -result.getScore();
+                if (result == null || isWin(scores[col]) || isLoss(scores[col]))
+                {
+                    solved[col] = true;
+                    open--;
+                }
+                listener.update(scores.clone(), depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package game.ai;
+
+import game.engine.Board;
+
+/*
+Answers from the opening book when the position is in it and falls back
+to the wrapped search otherwise
+*/
+public class BookSearcher implements Searcher
+{
+    private final OpeningBook book;
+    private final Searcher search;
+
+    public BookSearcher(OpeningBook book, Searcher search)
+    {
+        this.book = book;
+        this.search = search;
+    }
+
+    @Override
+    public String getName()
+    {
+        return search.getName() + "+book";
+    }
+
+    @Override
+    public double getTableHitRate()
+    {
+        return search.getTableHitRate();
+    }
+
+    @Override
+    public SearchResult search(Board board, SearchBudget budget)
+    {
+        long start = System.nanoTime();
+        int entry = book.probe(board);
+        if (entry != OpeningBook.MISS && board.canPlay(OpeningBook.column(entry)))
+        {
+            return new SearchResult(OpeningBook.column(entry), OpeningBook.score(entry), 0, 0,
+                    System.nanoTime() - start);
+        }
+        return search.search(board, budget);
+    }
+}
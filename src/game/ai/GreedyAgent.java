@@ -0,0 +1,58 @@
+package game.ai;
+
+import game.engine.Board;
+import java.util.SplittableRandom;
+
+/*
+Takes a win when there is one, otherwise plays a random column that does
+not hand the opponent a win on the next move
+*/
+public class GreedyAgent implements Agent
+{
+    private final SplittableRandom random;
+
+    public GreedyAgent(long seed)
+    {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "greedy";
+    }
+
+    @Override
+    public int selectMove(Board board, SearchBudget budget)
+    {
+        int columns = board.getGeometry().getColumns();
+        int safe = 0;
+        int pick = -1;
+        for (int col = 0; col < columns; col++)
+        {
+            if (!board.canPlay(col))
+                continue;
+            if (board.isWinningMove(col))
+                return col;
+            if (pick < 0)
+                pick = col;
+            board.play(col);
+            boolean losing = opponentWins(board);
+            board.undo();
+            // reservoir sampling keeps every safe column equally likely
+            if (!losing && random.nextInt(++safe) == 0)
+                pick = col;
+        }
+        return pick;
+    }
+
+    private static boolean opponentWins(Board board)
+    {
+        for (int col = 0; col < board.getGeometry().getColumns(); col++)
+        {
+            if (board.canPlay(col) && board.isWinningMove(col))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,392 @@
+package game.ai;
+
+import game.engine.Board;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Monte Carlo tree search with UCT selection.  Unlike the alpha-beta search
+it needs no evaluation and its cost per iteration hardly grows with the
+board, which makes it the stronger opponent on large geometries.
+
+All threads grow one tree (tree parallelism).  A thread walking down the
+tree adds a visit to every node on its path before the playout has a
+result, a virtual loss that steers the other threads to different
+branches.  The tree lives in flat arrays sized once up front; a node's
+children sit next to each other and are created together, by whichever
+thread claims the node first.  When the arrays are full the tree stops
+growing and the remaining iterations only add playouts.
+
+Playouts take a win when one is on the board and otherwise play a random
+column (or only random columns when light is false).  In the SearchResult
+the node count is the number of playouts and the score is the expected
+result for the side to move in thousandths, from -500 for a sure loss to
+500 for a sure win.
+*/
+public class MctsSearch implements Searcher
+{
+    private static final double EXPLORATION = 1.4;
+
+    // expansion state of a node
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int FULL = 3;
+
+    // a node is terminal when the move into it ended the game
+    private static final byte OPEN = 0;
+    private static final byte WON = 1;
+    private static final byte DRAWN = 2;
+
+    private final int capacity;
+    private final long maxPlayouts;
+    private final boolean light;
+    private final int[] moves;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final byte[] terminal;
+    private final AtomicIntegerArray state;
+    private final AtomicIntegerArray visits;
+    // twice the results for the side that moved into the node: 2 a win, 1 a draw
+    private final AtomicLongArray value;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    private final SplittableRandom seeds;
+    private final ExecutorService helpers;
+    private final int threads;
+    private volatile double playoutsPerSecond;
+
+    public MctsSearch(int threads, long seed)
+    {
+        this(threads, 1 << 20, Long.MAX_VALUE, true, seed);
+    }
+
+    /*
+    capacity bounds the tree in nodes, maxPlayouts the playouts per move
+    on top of the time budget
+    */
+    public MctsSearch(int threads, int capacity, long maxPlayouts, boolean light, long seed)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("Need at least one search thread");
+        }
+        this.threads = threads;
+        this.capacity = capacity;
+        this.maxPlayouts = maxPlayouts;
+        this.light = light;
+        moves = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        terminal = new byte[capacity];
+        state = new AtomicIntegerArray(capacity);
+        visits = new AtomicIntegerArray(capacity);
+        value = new AtomicLongArray(capacity);
+        seeds = new SplittableRandom(seed);
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r ->
+        {
+            Thread thread = new Thread(r, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName()
+    {
+        return "mcts-" + threads;
+    }
+
+    /*
+    Playouts per second of the last search, over all threads
+    */
+    public double getPlayoutsPerSecond()
+    {
+        return playoutsPerSecond;
+    }
+
+    @Override
+    public SearchResult search(Board board, SearchBudget budget)
+    {
+        long start = System.nanoTime();
+        if (countLegal(board) == 0)
+        {
+            return new SearchResult(-1, 0, 0, 0, System.nanoTime() - start);
+        }
+        newTree();
+        SearchBudget shared = budget.derive();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < threads; i++)
+        {
+            Worker worker = new Worker(board, seeds.split());
+            running.add(helpers.submit(() -> worker.run(shared)));
+        }
+        new Worker(board, seeds.split()).run(shared);
+        shared.cancel();
+        for (Future<?> helper : running)
+        {
+            try
+            {
+                helper.get();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException ex)
+            {
+                System.err.println(ex.getCause());
+            }
+        }
+
+        int best = state.get(0) == EXPANDED ? bestChild() : -1;
+        long elapsed = System.nanoTime() - start;
+        long total = playouts.get();
+        playoutsPerSecond = elapsed == 0 ? 0 : total * 1e9 / elapsed;
+        if (best < 0)
+        {
+            // out of time before the root had children
+            return new SearchResult(new RandomAgent(0).selectMove(board, budget), 0, 0, total, elapsed);
+        }
+        int score = (int) (value.get(best) * 500 / Math.max(1, visits.get(best))) - 500;
+        return new SearchResult(moves[best], score, maxDepth.get(), total, elapsed);
+    }
+
+    public void shutdown()
+    {
+        if (helpers != null)
+        {
+            helpers.shutdownNow();
+        }
+    }
+
+    private void newTree()
+    {
+        size.set(1);
+        playouts.set(0);
+        maxDepth.set(0);
+        state.set(0, LEAF);
+        visits.set(0, 0);
+        value.set(0, 0);
+        terminal[0] = OPEN;
+    }
+
+    private int bestChild()
+    {
+        int first = firstChild[0];
+        int best = first;
+        for (int child = first; child < first + childCount[0]; child++)
+        {
+            if (terminal[child] == WON)
+                return child;
+            if (visits.get(child) > visits.get(best))
+                best = child;
+        }
+        return best;
+    }
+
+    private static int countLegal(Board board)
+    {
+        int legal = 0;
+        for (int col = 0; col < board.getGeometry().getColumns(); col++)
+        {
+            if (board.canPlay(col))
+                legal++;
+        }
+        return legal;
+    }
+
+    /*
+    One search thread with its own copy of the position, which it plays
+    forward along the tree and the playout and then takes back
+    */
+    private final class Worker
+    {
+        private final Board board;
+        private final SplittableRandom random;
+        private final int rootPly;
+        private final int[] path;
+
+        Worker(Board position, SplittableRandom random)
+        {
+            board = new Board(position);
+            this.random = random;
+            rootPly = position.getPly();
+            path = new int[position.getGeometry().getCells() - rootPly + 1];
+        }
+
+        void run(SearchBudget budget)
+        {
+            for (long n = 0; ; n++)
+            {
+                if ((n & 63) == 0 && n > 0 && budget.isExpired())
+                    return;
+                if (playouts.incrementAndGet() > maxPlayouts)
+                {
+                    playouts.decrementAndGet();
+                    return;
+                }
+                iterate();
+            }
+        }
+
+        private void iterate()
+        {
+            int depth = 0;
+            int node = 0;
+            path[depth++] = node;
+            visits.incrementAndGet(node);
+            int winner;
+            while (true)
+            {
+                if (terminal[node] != OPEN)
+                {
+                    winner = terminal[node] == WON ? 1 - board.sideToMove() : Board.EMPTY;
+                    break;
+                }
+                int expansion = state.get(node);
+                boolean expanded = false;
+                if (expansion == LEAF && state.compareAndSet(node, LEAF, EXPANDING))
+                {
+                    expansion = expand(node);
+                    expanded = expansion == EXPANDED;
+                }
+                if (expansion != EXPANDED)
+                {
+                    winner = playout();
+                    break;
+                }
+                node = select(node);
+                visits.incrementAndGet(node);
+                board.play(moves[node]);
+                path[depth++] = node;
+                if (expanded)
+                {
+                    // one new node per iteration: play the rest out from it
+                    winner = terminal[node] == WON ? 1 - board.sideToMove()
+                            : terminal[node] == DRAWN ? Board.EMPTY : playout();
+                    break;
+                }
+            }
+            if (depth - 1 > maxDepth.get())
+            {
+                maxDepth.accumulateAndGet(depth - 1, Math::max);
+            }
+
+            for (int i = depth - 1; i >= 0; i--)
+            {
+                int mover = (rootPly + i - 1) & 1;
+                if (winner == Board.EMPTY)
+                    value.addAndGet(path[i], 1);
+                else if (winner == mover)
+                    value.addAndGet(path[i], 2);
+                if (i > 0)
+                    board.undo();
+            }
+        }
+
+        private int expand(int node)
+        {
+            int columns = board.getGeometry().getColumns();
+            int count = countLegal(board);
+            int first = size.getAndAdd(count);
+            if (first + count > capacity)
+            {
+                state.set(node, FULL);
+                return FULL;
+            }
+            boolean last = board.getPly() + 1 == board.getGeometry().getCells();
+            for (int col = 0, child = first; col < columns; col++)
+            {
+                if (!board.canPlay(col))
+                    continue;
+                moves[child] = col;
+                terminal[child] = board.isWinningMove(col) ? WON : last ? DRAWN : OPEN;
+                visits.set(child, 0);
+                value.set(child, 0);
+                state.set(child, LEAF);
+                child++;
+            }
+            firstChild[node] = first;
+            childCount[node] = count;
+            state.set(node, EXPANDED);
+            return EXPANDED;
+        }
+
+        private int select(int node)
+        {
+            int first = firstChild[node];
+            double logParent = Math.log(Math.max(1, visits.get(node)));
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + childCount[node]; child++)
+            {
+                int n = visits.get(child);
+                if (n == 0)
+                    return child;
+                double score = value.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logParent / n);
+                if (score > bestScore)
+                {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /*
+        Plays random moves to the end of the game and returns the winning
+        side or Board.EMPTY for a draw
+        */
+        private int playout()
+        {
+            int played = 0;
+            int winner = Board.EMPTY;
+            while (!board.isFull())
+            {
+                board.play(pickMove());
+                played++;
+                if (board.lastMoveWins())
+                {
+                    winner = 1 - board.sideToMove();
+                    break;
+                }
+            }
+            for (; played > 0; played--)
+            {
+                board.undo();
+            }
+            return winner;
+        }
+
+        private int pickMove()
+        {
+            int columns = board.getGeometry().getColumns();
+            if (light)
+            {
+                for (int col = 0; col < columns; col++)
+                {
+                    if (board.canPlay(col) && board.isWinningMove(col))
+                        return col;
+                }
+            }
+            int col = random.nextInt(columns);
+            while (!board.canPlay(col))
+            {
+                col = (col + 1) % columns;
+            }
+            return col;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package game.ai;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import game.tablebase.Tablebase;
+import java.io.IOException;
+
+/*
+Alpha-beta negamax with iterative deepening.  Columns are tried from the
+center out, after the best move remembered in the transposition table.
+Positions the search cannot finish are scored by counting the lines each
+side can still complete.  Win scores shrink with the number of discs on
+the board so a faster win always scores higher.  The root never takes a
+table cutoff: an entry stored for the position by an earlier search says
+nothing about which move this search found best, so returning it could
+play an old move.
+
+Several agents may share one table for a parallel search; a helper number
+above 0 staggers the depths an agent starts from so helpers spread out.
+With an endgame tablebase, positions it holds are not searched at all.
+*/
+public class NegamaxAgent implements Searcher
+{
+    public static final int WIN = 1_000_000_000;
+
+    private final TranspositionTable table;
+    private final int maxDepth;
+    private final int helper;
+    private Tablebase tablebase;
+    private boolean agesTable = true;
+    private Board board;
+    private SearchBudget budget;
+    private int[] order;
+    private int rootPly;
+    private int rootMove;
+    private long nodes;
+    private long probes;
+    private long hits;
+    private boolean aborted;
+
+    public NegamaxAgent()
+    {
+        this(new TranspositionTable(20), Integer.MAX_VALUE);
+    }
+
+    public NegamaxAgent(TranspositionTable table, int maxDepth)
+    {
+        this(table, maxDepth, 0);
+    }
+
+    public NegamaxAgent(TranspositionTable table, int maxDepth, int helper)
+    {
+        this.table = table;
+        this.maxDepth = maxDepth;
+        this.helper = helper;
+    }
+
+    @Override
+    public String getName()
+    {
+        return maxDepth == Integer.MAX_VALUE ? "negamax" : "negamax-" + maxDepth;
+    }
+
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    /*
+    Whether each search ages the table, on by default; a caller that runs
+    many searches as one, like the analysis, turns it off and ages the
+    table itself
+    */
+    public void setAgesTable(boolean agesTable)
+    {
+        this.agesTable = agesTable;
+    }
+
+    public TranspositionTable getTable()
+    {
+        return table;
+    }
+
+    /*
+    Share of table probes during the last search that found an entry
+    */
+    @Override
+    public double getTableHitRate()
+    {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    @Override
+    public SearchResult search(Board position, SearchBudget limit)
+    {
+        long start = System.nanoTime();
+        board = position;
+        budget = limit;
+        order = centerOrder(position.getGeometry());
+        rootPly = position.getPly();
+        rootMove = -1;
+        nodes = 0;
+        probes = 0;
+        hits = 0;
+        aborted = false;
+        if (helper == 0 && agesTable)
+        {
+            // lazy SMP helpers search for the same move as the main thread
+            table.newSearch();
+        }
+
+        int bestMove = firstLegal();
+        int bestScore = 0;
+        int completed = 0;
+        int remaining = position.getGeometry().getCells() - position.getPly();
+        for (int depth = 1 + (helper & 1); depth <= Math.min(maxDepth, remaining); depth++)
+        {
+            int score = negamax(depth, -WIN, WIN);
+            if (aborted)
+                break;
+            if (rootMove >= 0)
+                bestMove = rootMove;
+            bestScore = score;
+            completed = depth;
+            // a mate read from the table may be longer than one this depth
+            // has not reached yet, so only stop once every shorter one is ruled out
+            if (Math.abs(score) >= WIN - position.getGeometry().getCells() && mateDistance(score) <= depth)
+                break;
+        }
+        board = null;
+        budget = null;
+        return new SearchResult(bestMove, bestScore, completed, nodes, System.nanoTime() - start);
+    }
+
+    /*
+    Plies from the root to the end of the game for a mate score
+    */
+    private int mateDistance(int score)
+    {
+        return WIN - Math.abs(score) - rootPly;
+    }
+
+    private int negamax(int depth, int alpha, int beta)
+    {
+        nodes++;
+        if ((nodes & 1023) == 0 && budget.isExpired())
+        {
+            aborted = true;
+            return 0;
+        }
+        if (board.isFull())
+            return 0;
+        if (tablebase != null && board.getPly() >= tablebase.getMinDiscs() && board.getPly() != rootPly)
+        {
+            int result = probeTablebase();
+            if (result != Tablebase.MISS)
+                return score(result);
+        }
+
+        int winScore = WIN - board.getPly() - 1;
+        for (int col : order)
+        {
+            if (board.canPlay(col) && board.isWinningMove(col))
+            {
+                store(col, TranspositionTable.EXACT, 255, winScore);
+                if (board.getPly() == rootPly)
+                    rootMove = col;
+                return winScore;
+            }
+        }
+        if (depth == 0)
+            return evaluate();
+
+        int alphaOrig = alpha;
+        int hashMove = -1;
+        long data = table.probe(board.getCanonicalHash());
+        probes++;
+        if (data != TranspositionTable.MISS)
+        {
+            hits++;
+            hashMove = TranspositionTable.move(data);
+            if (hashMove >= 0 && board.isMirrored())
+                hashMove = board.mirror(hashMove);
+            // the root always searches so that it knows its best move
+            if (TranspositionTable.depth(data) >= depth && board.getPly() != rootPly)
+            {
+                int score = TranspositionTable.score(data);
+                int flag = TranspositionTable.flag(data);
+                if (flag == TranspositionTable.EXACT)
+                    return score;
+                else if (flag == TranspositionTable.LOWER)
+                    alpha = Math.max(alpha, score);
+                else
+                    beta = Math.min(beta, score);
+                if (alpha >= beta)
+                    return score;
+            }
+        }
+
+        int bestScore = -WIN;
+        int bestMove = -1;
+        for (int i = -1; i < order.length; i++)
+        {
+            int col = i < 0 ? hashMove : order[i];
+            if (col < 0 || (i >= 0 && col == hashMove) || !board.canPlay(col))
+                continue;
+            board.play(col);
+            int score = -negamax(depth - 1, -beta, -alpha);
+            board.undo();
+            if (aborted)
+                return 0;
+            if (score > bestScore)
+            {
+                bestScore = score;
+                bestMove = col;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta)
+                break;
+        }
+
+        int flag = bestScore <= alphaOrig ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        store(bestMove, flag, depth, bestScore);
+        if (board.getPly() == rootPly)
+            rootMove = bestMove;
+        return bestScore;
+    }
+
+    private int probeTablebase()
+    {
+        try
+        {
+            return tablebase.probe(board);
+        }
+        catch (IOException ex)
+        {
+            System.err.println(ex.getMessage());
+            tablebase = null;
+            return Tablebase.MISS;
+        }
+    }
+
+    /*
+    The search score of a tablebase result: the winning disc drops at ply
+    getPly() + distance - 1, scored like a win found by the search
+    */
+    private int score(int result)
+    {
+        if (Tablebase.isWin(result))
+            return WIN - board.getPly() - Tablebase.distance(result);
+        if (Tablebase.isLoss(result))
+            return -(WIN - board.getPly() - Tablebase.distance(result));
+        return 0;
+    }
+
+    /*
+    Stores under the canonical key, so the move is mirrored along with
+    the position when the mirror image is the canonical one
+    */
+    private void store(int move, int flag, int depth, int score)
+    {
+        table.store(board.getCanonicalHash(), board.isMirrored() && move >= 0 ? board.mirror(move) : move,
+                flag, depth, score);
+    }
+
+    /*
+    Scores every line that only one side occupies, 4^(discs - 1) per line
+    (capped for long connect lengths), from the point of view of the side
+    to move
+    */
+    private int evaluate()
+    {
+        Geometry geometry = board.getGeometry();
+        int me = board.sideToMove();
+        int score = 0;
+        for (int line : geometry.getLineIds())
+        {
+            int mine = 0;
+            int theirs = 0;
+            for (int cell : geometry.getLineCells(line))
+            {
+                if (board.hasDisc(me, cell))
+                    mine++;
+                else if (board.hasDisc(1 - me, cell))
+                    theirs++;
+            }
+            if (theirs == 0 && mine > 0)
+                score += 1 << (2 * Math.min(mine - 1, 6));
+            else if (mine == 0 && theirs > 0)
+                score -= 1 << (2 * Math.min(theirs - 1, 6));
+        }
+        return score;
+    }
+
+    private int firstLegal()
+    {
+        for (int col : order)
+        {
+            if (board.canPlay(col))
+                return col;
+        }
+        return -1;
+    }
+
+    static int[] centerOrder(Geometry geometry)
+    {
+        int columns = geometry.getColumns();
+        int[] order = new int[columns];
+        for (int i = 0; i < columns; i++)
+        {
+            // center, then alternate right and left of it
+            int offset = (i + 1) / 2;
+            order[i] = (columns - 1) / 2 + ((i & 1) == 1 ? offset : -offset);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,111 @@
+package game.ai;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Read-only opening book mapped straight from disk.  The file is a small
+header followed by fixed-size entries sorted by position hash, so a lookup
+is a binary search over the mapped pages and nothing is copied onto the heap.
+
+    header:  magic, version, columns, rows, connect, entry count   (6 ints)
+    entry:   position hash (long), score << 8 | best column (int)
+*/
+public final class OpeningBook
+{
+    static final int MAGIC = 0x43344250; // "C4BP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int ENTRY_BYTES = 12;
+    public static final int MISS = -1;
+
+    private final MappedByteBuffer entries;
+    private final Geometry geometry;
+    private final int count;
+
+    private OpeningBook(MappedByteBuffer entries, Geometry geometry, int count)
+    {
+        this.entries = entries;
+        this.geometry = geometry;
+        this.count = count;
+    }
+
+    public static OpeningBook open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            {
+                throw new IOException(path + " is not an opening book");
+            }
+            Geometry geometry = Geometry.of(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16));
+            int count = buffer.getInt(20);
+            if ((long) HEADER_BYTES + (long) count * ENTRY_BYTES > buffer.capacity())
+            {
+                throw new IOException(path + " is truncated");
+            }
+            return new OpeningBook(buffer, geometry, count);
+        }
+    }
+
+    /*
+    Returns score << 8 | column for the position, or MISS
+    */
+    public int probe(Board board)
+    {
+        if (board.getGeometry() != geometry)
+        {
+            return MISS;
+        }
+        long key = board.getHash();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_BYTES + mid * ENTRY_BYTES;
+            long found = entries.getLong(offset);
+            if (found < key)
+                low = mid + 1;
+            else if (found > key)
+                high = mid - 1;
+            else
+                return entries.getInt(offset + 8);
+        }
+        return MISS;
+    }
+
+    public static int column(int entry)
+    {
+        return entry & 0xFF;
+    }
+
+    public static int score(int entry)
+    {
+        return entry >> 8;
+    }
+
+    public Geometry getGeometry()
+    {
+        return geometry;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    static void writeHeader(ByteBuffer header, Geometry geometry, int count)
+    {
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(geometry.getColumns()).putInt(geometry.getRows()).putInt(geometry.getConnect())
+                .putInt(count);
+    }
+}
@@ -0,0 +1,160 @@
+package game.ai;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/*
+Builds the opening book: every position of the classic board reachable in
+fewer than the given number of plies without a win is searched to a fixed
+depth, and the best column and score are written out sorted by hash.
+
+    java game.ai.OpeningBookBuilder book.bin [plies] [depth]
+*/
+public class OpeningBookBuilder
+{
+    private static final int MAX_SCORE = (1 << 23) - 1;
+    private static final long SEQUENCE_MASK = (1L << 60) - 1;
+
+    private final Geometry geometry;
+    private final int plies;
+    private final int depth;
+    private final Map<Long, Long> positions = new HashMap<>();
+
+    public OpeningBookBuilder(Geometry geometry, int plies, int depth)
+    {
+        if (plies > 15 || geometry.getColumns() > 16)
+        {
+            throw new IllegalArgumentException("Move sequences are packed four bits per ply, fifteen plies at most");
+        }
+        this.geometry = geometry;
+        this.plies = plies;
+        this.depth = depth;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: OpeningBookBuilder <file> [plies] [depth]");
+            return;
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        new OpeningBookBuilder(Geometry.STANDARD, plies, depth).build(Paths.get(args[0]));
+    }
+
+    public void build(Path path) throws IOException
+    {
+        long start = System.nanoTime();
+        collect(new Board(geometry), 0L);
+        long[] keys = new long[positions.size()];
+        long[] sequences = new long[keys.length];
+        int n = 0;
+        for (Map.Entry<Long, Long> position : positions.entrySet())
+        {
+            keys[n] = position.getKey();
+            sequences[n++] = position.getValue();
+        }
+        System.out.printf("%d positions up to ply %d, searching to depth %d%n", keys.length, plies - 1, depth);
+
+        int[] entries = new int[keys.length];
+        AtomicInteger done = new AtomicInteger();
+        ThreadLocal<NegamaxAgent> agents = ThreadLocal.withInitial(
+                () -> new NegamaxAgent(new TranspositionTable(20), depth));
+        IntStream.range(0, keys.length).parallel().forEach(i ->
+        {
+            Board board = replay(sequences[i]);
+            SearchResult result = agents.get().search(board, SearchBudget.unlimited());
+            int score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, result.getScore()));
+            entries[i] = score << 8 | result.getColumn();
+            if (done.incrementAndGet() % 10000 == 0)
+            {
+                System.out.printf("%d / %d%n", done.get(), keys.length);
+            }
+        });
+
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        write(path, keys, entries, order);
+        System.out.printf("wrote %s in %.1f s%n", path, (System.nanoTime() - start) / 1e9);
+    }
+
+    /*
+    Walks the game tree to the ply limit, remembering one move sequence per
+    position (the low 60 bits, four per ply, with the ply count on top);
+    positions after a win are left out
+    */
+    private void collect(Board board, long sequence)
+    {
+        sequence = (sequence & SEQUENCE_MASK) | (long) board.getPly() << 60;
+        if (board.getPly() >= plies || positions.putIfAbsent(board.getHash(), sequence) != null)
+        {
+            return;
+        }
+        for (int col = 0; col < geometry.getColumns(); col++)
+        {
+            if (board.canPlay(col) && !board.isWinningMove(col))
+            {
+                board.play(col);
+                collect(board, sequence | (long) col << (4 * (board.getPly() - 1)));
+                board.undo();
+            }
+        }
+    }
+
+    private Board replay(long sequence)
+    {
+        Board board = new Board(geometry);
+        int length = (int) (sequence >>> 60);
+        for (int i = 0; i < length; i++)
+        {
+            board.play((int) (sequence >>> (4 * i)) & 0xF);
+        }
+        return board;
+    }
+
+    private void write(Path path, long[] keys, int[] entries, Integer[] order) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.BIG_ENDIAN);
+            OpeningBook.writeHeader(buffer, geometry, keys.length);
+            for (int i : order)
+            {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES)
+                {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(keys[i]).putInt(entries[i]);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,106 @@
+package game.ai;
+
+import game.engine.Board;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+Lazy SMP: the calling thread and threads - 1 helpers all run the same
+iterative deepening search over one shared transposition table.  The
+helpers only feed the table; the move comes from the calling thread, and
+the helpers are stopped as soon as it returns.  All of them honour the
+budget handed in by the turn loop.
+*/
+public class ParallelSearch implements Searcher
+{
+    private final NegamaxAgent[] workers;
+    private final ExecutorService helpers;
+
+    public ParallelSearch(int threads)
+    {
+        this(threads, new TranspositionTable(22), Integer.MAX_VALUE);
+    }
+
+    public ParallelSearch(int threads, TranspositionTable table, int maxDepth)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("Need at least one search thread");
+        }
+        workers = new NegamaxAgent[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            workers[i] = new NegamaxAgent(table, maxDepth, i);
+        }
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r ->
+        {
+            Thread thread = new Thread(r, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName()
+    {
+        return "lazy-smp-" + workers.length;
+    }
+
+    public int getThreads()
+    {
+        return workers.length;
+    }
+
+    @Override
+    public SearchResult search(Board board, SearchBudget budget)
+    {
+        long start = System.nanoTime();
+        SearchBudget shared = budget.derive();
+        List<Future<SearchResult>> results = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++)
+        {
+            NegamaxAgent worker = workers[i];
+            Board position = new Board(board);
+            results.add(helpers.submit(() -> worker.search(position, shared)));
+        }
+
+        SearchResult main = workers[0].search(board, shared);
+        shared.cancel();
+        long nodes = main.getNodes();
+        for (Future<SearchResult> result : results)
+        {
+            try
+            {
+                nodes += result.get().getNodes();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException ex)
+            {
+                System.err.println(ex.getCause());
+            }
+        }
+        return new SearchResult(main.getColumn(), main.getScore(), main.getDepth(), nodes,
+                System.nanoTime() - start);
+    }
+
+    @Override
+    public double getTableHitRate()
+    {
+        return workers[0].getTableHitRate();
+    }
+
+    public void shutdown()
+    {
+        if (helpers != null)
+        {
+            helpers.shutdownNow();
+        }
+    }
+}
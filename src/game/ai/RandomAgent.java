@@ -0,0 +1,35 @@
+package game.ai;
+
+import game.engine.Board;
+import java.util.SplittableRandom;
+
+/*
+Plays any legal column with equal chance
+*/
+public class RandomAgent implements Agent
+{
+    private final SplittableRandom random;
+
+    public RandomAgent(long seed)
+    {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "random";
+    }
+
+    @Override
+    public int selectMove(Board board, SearchBudget budget)
+    {
+        int columns = board.getGeometry().getColumns();
+        int col = random.nextInt(columns);
+        while (!board.canPlay(col))
+        {
+            col = (col + 1) % columns;
+        }
+        return col;
+    }
+}
@@ -0,0 +1,85 @@
+package game.ai;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.util.Random;
+
+/*
+Measures how the parallel search scales: for 1, 2, 4 ... threads it
+searches the same positions to a fixed depth and prints nodes per second,
+time to depth and the speedup over one thread.  Every thread count gets an
+untimed warm-up pass and then the best of a few timed ones, each with a
+fresh table, so the first count is not measured while the JIT is still at
+work.
+
+    java game.ai.ScalingReport [maxThreads] [depth] [positions]
+*/
+public class ScalingReport
+{
+    private static final int REPEATS = 3;
+
+    public static void main(String[] args)
+    {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        Board[] positions = openings(Geometry.STANDARD, count, 6, 42L);
+
+        double baseline = 0;
+        System.out.println("threads  time-to-depth(ms)  nodes/s  speedup");
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads))
+        {
+            long elapsed = Long.MAX_VALUE;
+            long nodes = 0;
+            for (int run = 0; run <= REPEATS; run++)
+            {
+                ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(22), depth);
+                long runNodes = 0;
+                long start = System.nanoTime();
+                for (Board position : positions)
+                {
+                    runNodes += search.search(new Board(position), SearchBudget.unlimited()).getNodes();
+                }
+                long runTime = System.nanoTime() - start;
+                search.shutdown();
+                // run 0 only warms up
+                if (run > 0 && runTime < elapsed)
+                {
+                    elapsed = runTime;
+                    nodes = runNodes;
+                }
+            }
+            if (threads == 1)
+            {
+                baseline = elapsed;
+            }
+            System.out.printf("%7d  %17.1f  %7.0f  %7.2f%n", threads, elapsed / 1e6 / positions.length,
+                    nodes * 1e9 / elapsed, baseline / elapsed);
+            if (threads == maxThreads)
+                break;
+        }
+    }
+
+    /*
+    Reproducible positions a few random moves into the game that nobody has won yet
+    */
+    static Board[] openings(Geometry geometry, int count, int plies, long seed)
+    {
+        Random random = new Random(seed);
+        Board[] positions = new Board[count];
+        for (int i = 0; i < count; i++)
+        {
+            Board board = new Board(geometry);
+            while (board.getPly() < plies)
+            {
+                int col = random.nextInt(geometry.getColumns());
+                if (board.canPlay(col) && !board.isWinningMove(col))
+                {
+                    board.play(col);
+                }
+            }
+            positions[i] = board;
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,54 @@
+package game.ai;
+
+/*
+Time limit and cancellation flag for one move.  The turn loop keeps the
+budget it handed out and cancels it when the move is no longer wanted,
+e.g. when a new game is started while the computer is thinking.
+*/
+public final class SearchBudget
+{
+    private final long deadline;
+    private final SearchBudget parent;
+    private volatile boolean cancelled;
+
+    private SearchBudget(long deadline, SearchBudget parent)
+    {
+        this.deadline = deadline;
+        this.parent = parent;
+    }
+
+    public static SearchBudget millis(long millis)
+    {
+        return new SearchBudget(System.nanoTime() + millis * 1_000_000L, null);
+    }
+
+    public static SearchBudget unlimited()
+    {
+        return new SearchBudget(Long.MAX_VALUE, null);
+    }
+
+    /*
+    Same deadline, and cancelled along with this budget, but can also be
+    cancelled on its own, e.g. to stop helper threads once the main search
+    is done
+    */
+    public SearchBudget derive()
+    {
+        return new SearchBudget(deadline, this);
+    }
+
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    public boolean isExpired()
+    {
+        return isCancelled() || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+}
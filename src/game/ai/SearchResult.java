@@ -0,0 +1,59 @@
+package game.ai;
+
+/*
+Outcome of a search: the chosen column plus the figures we track per move
+*/
+public final class SearchResult
+{
+    private final int column;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public SearchResult(int column, int score, int depth, long nodes, long elapsedNanos)
+    {
+        this.column = column;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public int getScore()
+    {
+        return score;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public double getNodesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("column %d score %d depth %d nodes %d in %.1f ms (%.0f nodes/s)",
+                column, score, depth, nodes, elapsedNanos / 1e6, getNodesPerSecond());
+    }
+}
@@ -0,0 +1,26 @@
+package game.ai;
+
+import game.engine.Board;
+
+/*
+An agent that reports how it reached its move
+*/
+public interface Searcher extends Agent
+{
+    SearchResult search(Board board, SearchBudget budget);
+
+    /*
+    Share of transposition table probes that hit during the last search,
+    or NaN for searches without a table
+    */
+    default double getTableHitRate()
+    {
+        return Double.NaN;
+    }
+
+    @Override
+    default int selectMove(Board board, SearchBudget budget)
+    {
+        return search(board, budget).getColumn();
+    }
+}
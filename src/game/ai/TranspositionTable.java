@@ -0,0 +1,182 @@
+package game.ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/*
+Fixed-size hash table of search results keyed by position hash, meant to
+be shared by any number of searches at once without locking.
+
+Each entry is one long holding the result and the top 16 bits of its hash.
+Entries are read and written whole, so a reader sees either the old or the
+new entry and a hash that does not match its check bits reads as a miss.
+Slots come in pairs on the same cache line.  A store overwrites the entry
+for the same position, or else whichever of the pair is worth less: left
+over from an older search first, shallower second.
+
+Callers key positions by Board.getCanonicalHash, so a position and its
+mirror image share one entry, and mirror the stored move when
+Board.isMirrored says so.
+*/
+public final class TranspositionTable
+{
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final long MISS = 0L;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int AGES = 63;
+    private static final int SCORE_BITS = 24;
+    private static final int SCORE_LIMIT = (1 << (SCORE_BITS - 1)) - 1;
+    private static final int MATE_RANGE = 1 << 20;
+    private static final long CHECK_MASK = 0xFFFFL << 48;
+
+    private static TranspositionTable shared;
+
+    private final long[] slots;
+    private final int mask;
+    private volatile int age = 1;
+
+    /*
+    Allocates 2^log2Entries entries of 8 bytes each
+    */
+    public TranspositionTable(int log2Entries)
+    {
+        if (log2Entries < 1 || log2Entries > 30)
+        {
+            throw new IllegalArgumentException("Table size 2^" + log2Entries + " out of range");
+        }
+        slots = new long[1 << log2Entries];
+        mask = (1 << log2Entries) - 2;
+    }
+
+    /*
+    One 2^22 entry table for the searches of a whole process, e.g. the
+    computer player and the hint analysis of the game window
+    */
+    public static synchronized TranspositionTable shared()
+    {
+        if (shared == null)
+        {
+            shared = new TranspositionTable(22);
+        }
+        return shared;
+    }
+
+    /*
+    Marks the start of a search; entries from earlier searches become the
+    first to be replaced
+    */
+    public void newSearch()
+    {
+        age = age % AGES + 1;
+    }
+
+    /*
+    Returns the packed entry stored for hash, or MISS
+    */
+    public long probe(long hash)
+    {
+        int i = index(hash);
+        long check = hash & CHECK_MASK;
+        long data = (long) SLOTS.getOpaque(slots, i);
+        if (data != MISS && (data & CHECK_MASK) == check)
+        {
+            return data;
+        }
+        data = (long) SLOTS.getOpaque(slots, i + 1);
+        if (data != MISS && (data & CHECK_MASK) == check)
+        {
+            return data;
+        }
+        return MISS;
+    }
+
+    public void store(long hash, int move, int flag, int depth, int score)
+    {
+        int i = index(hash);
+        int current = age;
+        long data = pack(hash, move, flag, depth, score, current);
+        long check = hash & CHECK_MASK;
+        long first = (long) SLOTS.getOpaque(slots, i);
+        long second = (long) SLOTS.getOpaque(slots, i + 1);
+        int slot;
+        if (first == MISS || (first & CHECK_MASK) == check)
+            slot = i;
+        else if (second == MISS || (second & CHECK_MASK) == check)
+            slot = i + 1;
+        else
+            slot = worth(first, current) <= worth(second, current) ? i : i + 1;
+        SLOTS.setOpaque(slots, slot, data);
+    }
+
+    public void clear()
+    {
+        Arrays.fill(slots, 0L);
+    }
+
+    private int index(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int worth(long data, int current)
+    {
+        int stale = age(data) == current ? 0 : 1;
+        return depth(data) - 256 * stale;
+    }
+
+    /*
+    Bits 0-7 hold move + 1, 8-9 the bound flag, 10-17 the depth, 18-23 the
+    age (never 0, so no stored entry equals MISS), 24-47 the score and
+    48-63 the check bits of the hash.  Scores keep 24 bits: wins and losses
+    keep their distance to NegamaxAgent.WIN and evaluations are clamped.
+    */
+    static long pack(long hash, int move, int flag, int depth, int score, int age)
+    {
+        long code = encode(score) & ((1L << SCORE_BITS) - 1);
+        return (hash & CHECK_MASK) | code << 24 | (long) age << 18 | (long) Math.min(depth, 255) << 10
+                | (long) flag << 8 | (move + 1);
+    }
+
+    private static int encode(int score)
+    {
+        if (score >= NegamaxAgent.WIN - MATE_RANGE)
+            return SCORE_LIMIT - (NegamaxAgent.WIN - score);
+        if (score <= -NegamaxAgent.WIN + MATE_RANGE)
+            return -SCORE_LIMIT + (NegamaxAgent.WIN + score);
+        return Math.max(-SCORE_LIMIT + MATE_RANGE + 1, Math.min(SCORE_LIMIT - MATE_RANGE - 1, score));
+    }
+
+    public static int move(long data)
+    {
+        return (int) (data & 0xFF) - 1;
+    }
+
+    public static int flag(long data)
+    {
+        return (int) (data >>> 8) & 3;
+    }
+
+    public static int depth(long data)
+    {
+        return (int) (data >>> 10) & 0xFF;
+    }
+
+    static int age(long data)
+    {
+        return (int) (data >>> 18) & 0x3F;
+    }
+
+    public static int score(long data)
+    {
+        int code = (int) (data << 16 >> 40);
+        if (code >= SCORE_LIMIT - MATE_RANGE)
+            return NegamaxAgent.WIN - (SCORE_LIMIT - code);
+        if (code <= -SCORE_LIMIT + MATE_RANGE)
+            return -NegamaxAgent.WIN + (code + SCORE_LIMIT);
+        return code;
+    }
+}
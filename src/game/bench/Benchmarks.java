@@ -0,0 +1,247 @@
+package game.bench;
+
+import game.Arguments;
+import game.ai.NegamaxAgent;
+import game.ai.SearchBudget;
+import game.ai.TranspositionTable;
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/*
+Micro benchmarks for the engine paths we roll out: dropping a disc and
+checking for a win (against the old full board scan), legal move
+generation and fixed-depth search.  Each case warms up, then runs timed
+iterations and records ns/op and bytes allocated per op.  Results are
+written as JSON laid out like JMH's so runs can be compared with the same
+tools.
+
+    java game.Driver bench [--out=bench.json] [--iterations=5] [--millis=1000] [--filter=name]
+*/
+public class Benchmarks
+{
+    private static final Geometry GEOMETRY = Geometry.STANDARD;
+
+    private final int iterations;
+    private final long millis;
+    private final List<Result> results = new ArrayList<>();
+    private long sink;
+
+    public Benchmarks(int iterations, long millis)
+    {
+        this.iterations = iterations;
+        this.millis = millis;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Arguments arguments = new Arguments(args);
+        Benchmarks benchmarks = new Benchmarks(arguments.getInt("iterations", 5), arguments.getLong("millis", 1000));
+        String filter = arguments.get("filter", "");
+
+        int[][] games = Fixtures.games(GEOMETRY, 1024, 1L);
+        Board[] positions = Fixtures.positions(GEOMETRY, 1024, 12, 2L);
+        Board[] searchPositions = Fixtures.positions(GEOMETRY, 8, 8, 3L);
+
+        Board board = new Board(GEOMETRY);
+        LegacyScan legacy = new LegacyScan(GEOMETRY.getColumns(), GEOMETRY.getRows());
+        int[] legal = new int[GEOMETRY.getColumns()];
+        NegamaxAgent agent = new NegamaxAgent(new TranspositionTable(20), 8);
+
+        benchmarks.measure(filter, "dropAndCheck.lastMove", plies(games), () ->
+        {
+            long wins = 0;
+            for (int[] game : games)
+            {
+                board.reset();
+                for (int col : game)
+                {
+                    board.play(col);
+                    if (board.lastMoveWins())
+                        wins++;
+                }
+            }
+            return wins;
+        });
+        benchmarks.measure(filter, "dropAndCheck.fullScan", plies(games), () ->
+        {
+            long wins = 0;
+            for (int[] game : games)
+            {
+                board.reset();
+                legacy.clear();
+                for (int col : game)
+                {
+                    int side = board.sideToMove();
+                    legacy.set(col, board.play(col), side);
+                    if (legacy.hasWon(side))
+                        wins++;
+                }
+            }
+            return wins;
+        });
+        benchmarks.measure(filter, "legalMoves", positions.length, () ->
+        {
+            long count = 0;
+            for (Board position : positions)
+            {
+                int n = 0;
+                for (int col = 0; col < legal.length; col++)
+                {
+                    if (position.canPlay(col))
+                        legal[n++] = col;
+                }
+                count += n;
+            }
+            return count;
+        });
+        benchmarks.measure(filter, "search.depth8", searchPositions.length, () ->
+        {
+            long nodes = 0;
+            for (Board position : searchPositions)
+            {
+                agent.getTable().clear();
+                nodes += agent.search(position, SearchBudget.unlimited()).getNodes();
+            }
+            return nodes;
+        });
+
+        String out = arguments.get("out", "bench.json");
+        benchmarks.writeJson(out);
+        System.out.println("results written to " + out);
+    }
+
+    private static int plies(int[][] games)
+    {
+        int plies = 0;
+        for (int[] game : games)
+        {
+            plies += game.length;
+        }
+        return plies;
+    }
+
+    /*
+    Runs body repeatedly; every call counts as opsPerCall operations
+    */
+    private void measure(String filter, String name, int opsPerCall, LongSupplier body)
+    {
+        if (!name.contains(filter))
+        {
+            return;
+        }
+        run(body, millis);
+        double[] nanosPerOp = new double[iterations];
+        double bytesPerOp = 0;
+        for (int i = 0; i < iterations; i++)
+        {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            long calls = run(body, millis);
+            long elapsed = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            nanosPerOp[i] = (double) elapsed / (calls * opsPerCall);
+            bytesPerOp += (double) bytes / (calls * opsPerCall) / iterations;
+        }
+        Result result = new Result(name, nanosPerOp, bytesPerOp);
+        results.add(result);
+        System.out.printf(Locale.ROOT, "%-24s %12.3f +- %.3f ns/op %10.3f B/op%n",
+                name, result.mean(), result.error(), bytesPerOp);
+    }
+
+    private long run(LongSupplier body, long budgetMillis)
+    {
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        long calls = 0;
+        do
+        {
+            sink += body.getAsLong();
+            calls++;
+        }
+        while (System.nanoTime() < deadline);
+        return calls;
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private void writeJson(String path) throws IOException
+    {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path))))
+        {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++)
+            {
+                Result result = results.get(i);
+                out.printf(Locale.ROOT, "  {\"benchmark\": \"game.bench.%s\", \"mode\": \"avgt\", \"measurementIterations\": %d,%n",
+                        result.name, iterations);
+                out.printf(Locale.ROOT, "   \"primaryMetric\": {\"score\": %.4f, \"scoreError\": %.4f, \"scoreUnit\": \"ns/op\"},%n",
+                        result.mean(), result.error());
+                out.printf(Locale.ROOT, "   \"secondaryMetrics\": {\"gc.alloc.rate.norm\": {\"score\": %.4f, \"scoreUnit\": \"B/op\"}}}%s%n",
+                        result.bytesPerOp, i + 1 < results.size() ? "," : "");
+            }
+            out.println("]");
+        }
+        // keeps the JIT from dropping the benchmark bodies
+        if (sink == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private static final class Result
+    {
+        private final String name;
+        private final double[] nanosPerOp;
+        private final double bytesPerOp;
+
+        Result(String name, double[] nanosPerOp, double bytesPerOp)
+        {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        double mean()
+        {
+            double sum = 0;
+            for (double value : nanosPerOp)
+            {
+                sum += value;
+            }
+            return sum / nanosPerOp.length;
+        }
+
+        /*
+        Half width of a rough 99.9% interval, 3.3 standard errors
+        */
+        double error()
+        {
+            if (nanosPerOp.length < 2)
+                return 0;
+            double mean = mean();
+            double squares = 0;
+            for (double value : nanosPerOp)
+            {
+                squares += (value - mean) * (value - mean);
+            }
+            return 3.3 * Math.sqrt(squares / (nanosPerOp.length - 1) / nanosPerOp.length);
+        }
+    }
+}
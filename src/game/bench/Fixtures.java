@@ -0,0 +1,69 @@
+package game.bench;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.util.SplittableRandom;
+
+/*
+Reproducible inputs for the benchmarks: complete random games and
+positions part way through them, all derived from a fixed seed
+*/
+final class Fixtures
+{
+    private Fixtures()
+    {
+    }
+
+    /*
+    Move lists of random games played until a win or a full board
+    */
+    static int[][] games(Geometry geometry, int count, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] games = new int[count][];
+        Board board = new Board(geometry);
+        for (int i = 0; i < count; i++)
+        {
+            board.reset();
+            while (!board.isFull())
+            {
+                int col = random.nextInt(geometry.getColumns());
+                if (board.canPlay(col))
+                {
+                    board.play(col);
+                    if (board.lastMoveWins())
+                        break;
+                }
+            }
+            games[i] = new int[board.getPly()];
+            for (int ply = 0; ply < games[i].length; ply++)
+            {
+                games[i][ply] = board.getMove(ply);
+            }
+        }
+        return games;
+    }
+
+    /*
+    Positions a given number of plies into random games, none of them won
+    */
+    static Board[] positions(Geometry geometry, int count, int plies, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Board[] positions = new Board[count];
+        for (int i = 0; i < count; i++)
+        {
+            Board board = new Board(geometry);
+            while (board.getPly() < plies)
+            {
+                int col = random.nextInt(geometry.getColumns());
+                if (board.canPlay(col) && !board.isWinningMove(col))
+                {
+                    board.play(col);
+                }
+            }
+            positions[i] = board;
+        }
+        return positions;
+    }
+}
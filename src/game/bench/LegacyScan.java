@@ -0,0 +1,72 @@
+package game.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+The win check the game used before the bitboard engine: after every drop
+it scanned every row, column and diagonal of a grid, collecting the
+current run of cells in a list.  Kept here only as the baseline the new
+detector is measured against.
+*/
+final class LegacyScan
+{
+    private final int columns;
+    private final int rows;
+    private final int[][] grid;
+    private final ArrayList<int[]> run = new ArrayList<>();
+
+    LegacyScan(int columns, int rows)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        grid = new int[columns][rows];
+    }
+
+    void clear()
+    {
+        for (int[] column : grid)
+        {
+            Arrays.fill(column, -1);
+        }
+    }
+
+    void set(int col, int row, int side)
+    {
+        grid[col][row] = side;
+    }
+
+    boolean hasWon(int side)
+    {
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int[] d : directions)
+        {
+            for (int col = 0; col < columns; col++)
+            {
+                for (int row = 0; row < rows; row++)
+                {
+                    // only start from the first cell of each line
+                    int pc = col - d[0];
+                    int pr = row - d[1];
+                    if (pc >= 0 && pc < columns && pr >= 0 && pr < rows)
+                        continue;
+                    run.clear();
+                    for (int c = col, r = row; c < columns && r >= 0 && r < rows; c += d[0], r += d[1])
+                    {
+                        if (grid[c][r] == side)
+                        {
+                            run.add(new int[] {c, r});
+                            if (run.size() == 4)
+                                return true;
+                        }
+                        else
+                        {
+                            run.clear();
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
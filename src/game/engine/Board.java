@@ -0,0 +1,231 @@
+package game.engine;
+
+/*
+Game state for a connect N board, kept as one bitboard per side.  On the
+classic board each bitboard is a single 64-bit word; larger geometries use
+as many words as they need.  Cells are numbered as described in Geometry.
+Sides are numbered 0 for the player who moves first and 1 for the other one.
+*/
+public final class Board
+{
+    public static final int EMPTY = -1;
+
+    private final Geometry geometry;
+    private final int words;
+    private final long[] discs;
+    private final int[] heights;
+    private final int[] moves;
+    private int ply;
+    private long hash;
+    private long mirrorHash;
+
+    public Board()
+    {
+        this(Geometry.STANDARD);
+    }
+
+    public Board(Geometry geometry)
+    {
+        this.geometry = geometry;
+        words = geometry.getWords();
+        discs = new long[2 * words];
+        heights = new int[geometry.getColumns()];
+        moves = new int[geometry.getCells()];
+    }
+
+    public Board(Board other)
+    {
+        geometry = other.geometry;
+        words = other.words;
+        discs = other.discs.clone();
+        heights = other.heights.clone();
+        moves = other.moves.clone();
+        ply = other.ply;
+        hash = other.hash;
+        mirrorHash = other.mirrorHash;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < discs.length; i++)
+        {
+            discs[i] = 0L;
+        }
+        for (int col = 0; col < heights.length; col++)
+        {
+            heights[col] = 0;
+        }
+        ply = 0;
+        hash = 0L;
+        mirrorHash = 0L;
+    }
+
+    public boolean canPlay(int col)
+    {
+        return col >= 0 && col < heights.length && heights[col] < geometry.getRows();
+    }
+
+    /*
+    Drops a disc for the side to move and returns the row it landed in
+    */
+    public int play(int col)
+    {
+        if (!canPlay(col))
+        {
+            throw new IllegalArgumentException("Column " + col + " is not playable");
+        }
+        int row = heights[col]++;
+        int cell = geometry.cell(col, row);
+        discs[(ply & 1) * words + (cell >>> 6)] |= 1L << cell;
+        hash ^= geometry.zobrist(ply & 1, cell);
+        mirrorHash ^= geometry.mirrorZobrist(ply & 1, cell);
+        moves[ply++] = col;
+        return row;
+    }
+
+    /*
+    Takes back the last disc and returns the column it was played in
+    */
+    public int undo()
+    {
+        if (ply == 0)
+        {
+            throw new IllegalStateException("No moves to undo");
+        }
+        int col = moves[--ply];
+        int cell = geometry.cell(col, --heights[col]);
+        discs[(ply & 1) * words + (cell >>> 6)] &= ~(1L << cell);
+        hash ^= geometry.zobrist(ply & 1, cell);
+        mirrorHash ^= geometry.mirrorZobrist(ply & 1, cell);
+        return col;
+    }
+
+    /*
+    True when dropping a disc in col would win for the side to move
+    */
+    public boolean isWinningMove(int col)
+    {
+        play(col);
+        boolean wins = lastMoveLine() >= 0;
+        undo();
+        return wins;
+    }
+
+    public boolean lastMoveWins()
+    {
+        return lastMoveLine() >= 0;
+    }
+
+    /*
+    Checks only the four lines through the disc played last.  Returns the id
+    of a winning line, whose cells Geometry.getLineCells lists, or -1 when
+    the last move did not win.
+    */
+    public int lastMoveLine()
+    {
+        if (ply == 0)
+        {
+            return -1;
+        }
+        int col = moves[ply - 1];
+        int cell = geometry.cell(col, heights[col] - 1);
+        int base = ((ply - 1) & 1) * words;
+        int need = geometry.getConnect() - 1;
+        for (int d = 0; d < Geometry.DIRECTIONS; d++)
+        {
+            int step = geometry.step(d);
+            int back = 0;
+            for (int limit = geometry.behind(cell, d); back < limit && isSet(base, cell - (back + 1) * step); back++)
+            {
+            }
+            int run = back;
+            for (int limit = back + geometry.ahead(cell, d); run < need && run < limit && isSet(base, cell + (run - back + 1) * step); run++)
+            {
+            }
+            if (run >= need)
+            {
+                return geometry.lineId(cell - back * step, d);
+            }
+        }
+        return -1;
+    }
+
+    private boolean isSet(int base, int cell)
+    {
+        return (discs[base + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    public boolean hasDisc(int side, int cell)
+    {
+        return isSet(side * words, cell);
+    }
+
+    public int getOwner(int col, int row)
+    {
+        int cell = geometry.cell(col, row);
+        if (isSet(0, cell))
+            return 0;
+        else if (isSet(words, cell))
+            return 1;
+        else
+            return EMPTY;
+    }
+
+    public Geometry getGeometry()
+    {
+        return geometry;
+    }
+
+    public int getHeight(int col)
+    {
+        return heights[col];
+    }
+
+    public int sideToMove()
+    {
+        return ply & 1;
+    }
+
+    /*
+    Zobrist hash of the discs on the board, kept up to date by play and undo
+    */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /*
+    The same hash for a position and its left-right mirror image, which
+    play alike.  When isMirrored is true the canonical position is the
+    mirror image, so columns found under this key must be mirrored back.
+    */
+    public long getCanonicalHash()
+    {
+        return Math.min(hash, mirrorHash);
+    }
+
+    public boolean isMirrored()
+    {
+        return mirrorHash < hash;
+    }
+
+    public int mirror(int col)
+    {
+        return geometry.getColumns() - 1 - col;
+    }
+
+    public int getPly()
+    {
+        return ply;
+    }
+
+    public int getMove(int index)
+    {
+        return moves[index];
+    }
+
+    public boolean isFull()
+    {
+        return ply == moves.length;
+    }
+}
@@ -0,0 +1,268 @@
+package game.engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Board size and connect length of a game variant, written as
+columns x rows / connect (the classic game here is 6x7/4).
+
+Cells are numbered column by column from the bottom up with one spare cell
+on top of every column, so a cell is also its bit index in a Board.  The
+line tables are built once per geometry: for every cell and direction how
+far a line may reach before it leaves the board, and for every run of
+connect cells its list of cells.  Win checks only walk those tables, so the
+cost of a move does not grow with the board.  Each geometry also carries
+the random keys Board uses to hash positions and their mirror images.
+*/
+public final class Geometry
+{
+    public static final int DIRECTIONS = 4;
+    // cell indexes, spare cells included; the line tables grow with it
+    public static final int MAX_BITS = 1 << 16;
+
+    private static final ConcurrentHashMap<String, Geometry> CACHE = new ConcurrentHashMap<>();
+
+    // vertical, horizontal, rising diagonal, falling diagonal
+    private static final int[] DELTA_COL = {0, 1, 1, 1};
+    private static final int[] DELTA_ROW = {1, 0, 1, -1};
+
+    public static final Geometry STANDARD = of(6, 7, 4);
+
+    private final int columns;
+    private final int rows;
+    private final int connect;
+    private final int stride;
+    private final int bits;
+    private final int words;
+    private final int[] steps = new int[DIRECTIONS];
+    private final byte[] behind;
+    private final byte[] ahead;
+    private final int[][] lines;
+    private final int[] lineIds;
+    private final long[] zobrist;
+    private final long[] mirrorZobrist;
+
+    private Geometry(int columns, int rows, int connect)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.connect = connect;
+        stride = rows + 1;
+        bits = columns * stride;
+        words = (bits + 63) >>> 6;
+        behind = new byte[bits * DIRECTIONS];
+        ahead = new byte[bits * DIRECTIONS];
+        lines = new int[bits * DIRECTIONS][];
+        zobrist = new long[2 * bits];
+        mirrorZobrist = new long[2 * bits];
+
+        for (int d = 0; d < DIRECTIONS; d++)
+        {
+            steps[d] = DELTA_COL[d] * stride + DELTA_ROW[d];
+        }
+        for (int col = 0; col < columns; col++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                int cell = col * stride + row;
+                for (int d = 0; d < DIRECTIONS; d++)
+                {
+                    int index = cell * DIRECTIONS + d;
+                    behind[index] = (byte) reach(col, row, -DELTA_COL[d], -DELTA_ROW[d]);
+                    ahead[index] = (byte) reach(col, row, DELTA_COL[d], DELTA_ROW[d]);
+                    if (ahead[index] == connect - 1)
+                    {
+                        int[] line = new int[connect];
+                        for (int k = 0; k < connect; k++)
+                        {
+                            line[k] = cell + k * steps[d];
+                        }
+                        lines[index] = line;
+                    }
+                }
+            }
+        }
+
+        int count = 0;
+        for (int[] line : lines)
+        {
+            if (line != null)
+                count++;
+        }
+        lineIds = new int[count];
+        for (int i = 0, n = 0; i < lines.length; i++)
+        {
+            if (lines[i] != null)
+                lineIds[n++] = i;
+        }
+
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL ^ toString().hashCode());
+        for (int i = 0; i < zobrist.length; i++)
+        {
+            zobrist[i] = random.nextLong();
+        }
+        for (int side = 0; side < 2; side++)
+        {
+            for (int col = 0; col < columns; col++)
+            {
+                for (int row = 0; row < rows; row++)
+                {
+                    mirrorZobrist[side * bits + cell(col, row)] = zobrist[side * bits + cell(columns - 1 - col, row)];
+                }
+            }
+        }
+    }
+
+    public static Geometry of(int columns, int rows, int connect)
+    {
+        if (columns < 1 || rows < 1 || connect < 2 || connect > Math.min(Math.max(columns, rows), 64)
+                || (long) columns * (rows + 1) > MAX_BITS)
+        {
+            throw new IllegalArgumentException("Unsupported geometry " + columns + "x" + rows + "/" + connect);
+        }
+        return CACHE.computeIfAbsent(columns + "x" + rows + "/" + connect,
+                key -> new Geometry(columns, rows, connect));
+    }
+
+    /*
+    Reads the columns x rows / connect notation, e.g. "7x6/4"
+    */
+    public static Geometry parse(String text)
+    {
+        try
+        {
+            int x = text.indexOf('x');
+            int slash = text.indexOf('/');
+            return of(Integer.parseInt(text.substring(0, x).trim()),
+                    Integer.parseInt(text.substring(x + 1, slash).trim()),
+                    Integer.parseInt(text.substring(slash + 1).trim()));
+        }
+        catch (IndexOutOfBoundsException | NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Expected columns x rows / connect, got " + text);
+        }
+    }
+
+    private int reach(int col, int row, int dc, int dr)
+    {
+        int k = 0;
+        while (k < connect - 1)
+        {
+            int c = col + (k + 1) * dc;
+            int r = row + (k + 1) * dr;
+            if (c < 0 || c >= columns || r < 0 || r >= rows)
+                break;
+            k++;
+        }
+        return k;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getConnect()
+    {
+        return connect;
+    }
+
+    public int getCells()
+    {
+        return columns * rows;
+    }
+
+    /*
+    Number of cell indexes including the spare cell on top of each column
+    */
+    public int getBits()
+    {
+        return bits;
+    }
+
+    public int getWords()
+    {
+        return words;
+    }
+
+    public int cell(int col, int row)
+    {
+        return col * stride + row;
+    }
+
+    public int column(int cell)
+    {
+        return cell / stride;
+    }
+
+    public int row(int cell)
+    {
+        return cell % stride;
+    }
+
+    int step(int direction)
+    {
+        return steps[direction];
+    }
+
+    int behind(int cell, int direction)
+    {
+        return behind[cell * DIRECTIONS + direction];
+    }
+
+    int ahead(int cell, int direction)
+    {
+        return ahead[cell * DIRECTIONS + direction];
+    }
+
+    /*
+    Identifies the run of connect cells starting at cell in the given direction
+    */
+    int lineId(int cell, int direction)
+    {
+        return cell * DIRECTIONS + direction;
+    }
+
+    /*
+    Ids of every winning line on the board
+    */
+    public int[] getLineIds()
+    {
+        return lineIds;
+    }
+
+    long zobrist(int side, int cell)
+    {
+        return zobrist[side * bits + cell];
+    }
+
+    /*
+    Key of the cell's left-right mirror image, so the mirrored position
+    can be hashed alongside the real one
+    */
+    long mirrorZobrist(int side, int cell)
+    {
+        return mirrorZobrist[side * bits + cell];
+    }
+
+    /*
+    Cells of a line returned by Board.lastMoveLine; the array is shared
+    and must not be modified
+    */
+    public int[] getLineCells(int line)
+    {
+        return lines[line];
+    }
+
+    @Override
+    public String toString()
+    {
+        return columns + "x" + rows + "/" + connect;
+    }
+}
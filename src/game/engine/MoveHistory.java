@@ -0,0 +1,162 @@
+package game.engine;
+
+/*
+The moves of one game on a board, with undo, redo and jumps to any ply.
+Every step is a single Board.play or Board.undo, which keep the Zobrist
+hash up to date, so moving through the history never rebuilds the board.
+Undone moves stay available to redo until a different move is played.
+
+A listener hears about every cell that changes, so a view can repaint just
+those: a jump between two plies touches exactly the cells of the moves in
+between.
+*/
+public final class MoveHistory
+{
+    private final Board board;
+    private final int[] moves;
+    // hashes[i] is the board hash after i moves
+    private final long[] hashes;
+    private int end;
+    private Listener listener;
+
+    public interface Listener
+    {
+        /*
+        side is the owner of the disc now in the cell, or Board.EMPTY
+        */
+        void cellChanged(int col, int row, int side);
+    }
+
+    /*
+    Takes over the moves already on the board
+    */
+    public MoveHistory(Board board)
+    {
+        this.board = board;
+        moves = new int[board.getGeometry().getCells()];
+        hashes = new long[moves.length + 1];
+        end = board.getPly();
+        Board replay = new Board(board.getGeometry());
+        for (int i = 0; i < end; i++)
+        {
+            moves[i] = board.getMove(i);
+            replay.play(moves[i]);
+            hashes[i + 1] = replay.getHash();
+        }
+    }
+
+    public void setListener(Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    public Board getBoard()
+    {
+        return board;
+    }
+
+    /*
+    Plays a move, dropping whatever was left to redo unless it is the same
+    move
+    */
+    public void play(int col)
+    {
+        int ply = board.getPly();
+        int row = board.play(col);
+        if (ply == end || moves[ply] != col)
+        {
+            moves[ply] = col;
+            end = ply + 1;
+        }
+        hashes[ply + 1] = board.getHash();
+        changed(col, row, ply & 1);
+    }
+
+    public boolean canUndo()
+    {
+        return board.getPly() > 0;
+    }
+
+    public boolean canRedo()
+    {
+        return board.getPly() < end;
+    }
+
+    public void undo()
+    {
+        int col = board.undo();
+        changed(col, board.getHeight(col), Board.EMPTY);
+    }
+
+    public void redo()
+    {
+        if (!canRedo())
+        {
+            throw new IllegalStateException("No moves to redo");
+        }
+        int ply = board.getPly();
+        int col = moves[ply];
+        changed(col, board.play(col), ply & 1);
+    }
+
+    /*
+    Undoes or redoes moves until ply moves are on the board
+    */
+    public void jumpTo(int ply)
+    {
+        if (ply < 0 || ply > end)
+        {
+            throw new IllegalArgumentException("Ply " + ply + " is outside the history of " + end + " moves");
+        }
+        while (board.getPly() > ply)
+        {
+            undo();
+        }
+        while (board.getPly() < ply)
+        {
+            redo();
+        }
+    }
+
+    /*
+    Empties the board and forgets every move
+    */
+    public void clear()
+    {
+        jumpTo(0);
+        end = 0;
+    }
+
+    /*
+    Number of moves played, counting those undone and not yet replaced
+    */
+    public int getEnd()
+    {
+        return end;
+    }
+
+    public int getMove(int ply)
+    {
+        return moves[ply];
+    }
+
+    /*
+    Hash of the position after ply moves, without going there
+    */
+    public long getHash(int ply)
+    {
+        if (ply > end)
+        {
+            throw new IllegalArgumentException("Ply " + ply + " is outside the history of " + end + " moves");
+        }
+        return hashes[ply];
+    }
+
+    private void changed(int col, int row, int side)
+    {
+        if (listener != null)
+        {
+            listener.cellChanged(col, row, side);
+        }
+    }
+}
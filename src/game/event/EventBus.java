@@ -0,0 +1,245 @@
+package game.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Fans game events out to any number of subscribers without ever making the
+publisher wait for them.  Events go into a ring of fixed size, kept as
+plain arrays so publishing allocates nothing, and every subscription reads
+the ring at its own pace on its own virtual thread.  A subscriber that
+falls a whole ring behind loses the oldest events and is told how many.
+
+Subscribers get every event that is waiting in one go, followed by
+endOfBatch, so the slower a subscriber is the more it can coalesce.
+Publishers only take a short lock among themselves to claim a slot;
+readers check the slot's sequence before and after copying it, so an
+event overwritten while being read is never delivered.
+*/
+public final class EventBus implements AutoCloseable
+{
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int mask;
+    // sequence of the event in each slot, -1 while it is being written
+    private final long[] sequences;
+    private final byte[] types;
+    private final long[] games;
+    private final int[] plies;
+    private final int[] columns;
+    private final int[] sides;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private long next;
+    private volatile long published = -1;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public interface Subscriber
+    {
+        void onEvent(GameEvent event);
+
+        /*
+        Called after the last event waiting at the moment
+        */
+        default void endOfBatch()
+        {
+        }
+
+        /*
+        Called when count events were overwritten before this subscriber
+        got to them
+        */
+        default void dropped(long count)
+        {
+        }
+    }
+
+    /*
+    Holds 2^log2Capacity events
+    */
+    public EventBus(int log2Capacity)
+    {
+        if (log2Capacity < 1 || log2Capacity > 24)
+        {
+            throw new IllegalArgumentException("Ring size 2^" + log2Capacity + " out of range");
+        }
+        int capacity = 1 << log2Capacity;
+        mask = capacity - 1;
+        sequences = new long[capacity];
+        Arrays.fill(sequences, -1L);
+        types = new byte[capacity];
+        games = new long[capacity];
+        plies = new int[capacity];
+        columns = new int[capacity];
+        sides = new int[capacity];
+    }
+
+    /*
+    Adds an event and returns its sequence
+    */
+    public long publish(GameEvent.Type type, long game, int ply, int column, int side)
+    {
+        long sequence;
+        publishLock.lock();
+        try
+        {
+            sequence = next++;
+            int slot = (int) sequence & mask;
+            SEQUENCES.setOpaque(sequences, slot, -1L);
+            VarHandle.storeStoreFence();
+            types[slot] = (byte) type.ordinal();
+            games[slot] = game;
+            plies[slot] = ply;
+            columns[slot] = column;
+            sides[slot] = side;
+            SEQUENCES.setRelease(sequences, slot, sequence);
+            published = sequence;
+        }
+        finally
+        {
+            publishLock.unlock();
+        }
+        for (Subscription subscription : subscriptions)
+        {
+            subscription.wake();
+        }
+        return sequence;
+    }
+
+    /*
+    Delivers the events published from now on to subscriber, on a virtual
+    thread of its own
+    */
+    public Subscription subscribe(String name, Subscriber subscriber)
+    {
+        Subscription subscription = new Subscription(name, subscriber, published + 1);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    @Override
+    public void close()
+    {
+        for (Subscription subscription : subscriptions)
+        {
+            subscription.close();
+        }
+    }
+
+    /*
+    Copies the event with this sequence into event; false when it has been
+    overwritten by a later one
+    */
+    private boolean read(long sequence, GameEvent event)
+    {
+        int slot = (int) sequence & mask;
+        if ((long) SEQUENCES.getAcquire(sequences, slot) != sequence)
+        {
+            return false;
+        }
+        event.type = GameEvent.TYPES[types[slot]];
+        event.game = games[slot];
+        event.ply = plies[slot];
+        event.column = columns[slot];
+        event.side = sides[slot];
+        VarHandle.loadLoadFence();
+        event.sequence = sequence;
+        return (long) SEQUENCES.getOpaque(sequences, slot) == sequence;
+    }
+
+    public final class Subscription implements AutoCloseable
+    {
+        private final Subscriber subscriber;
+        private final GameEvent event = new GameEvent();
+        private long cursor;
+        private volatile boolean waiting;
+        private volatile boolean closed;
+        private volatile long dropped;
+        private final Thread thread;
+
+        private Subscription(String name, Subscriber subscriber, long cursor)
+        {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+            thread = Thread.ofVirtual().name(name).unstarted(this::run);
+        }
+
+        private void run()
+        {
+            while (!closed)
+            {
+                long last = published;
+                if (cursor > last)
+                {
+                    waiting = true;
+                    if (published < cursor && !closed)
+                    {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                for (; cursor <= last && !closed; cursor++)
+                {
+                    if (!read(cursor, event))
+                    {
+                        // lapped: carry on from the oldest event still in the ring
+                        long oldest = Math.max(cursor + 1, published - mask);
+                        dropped += oldest - cursor;
+                        subscriber.dropped(oldest - cursor);
+                        cursor = oldest - 1;
+                        last = Math.max(last, published);
+                        continue;
+                    }
+                    try
+                    {
+                        subscriber.onEvent(event);
+                    }
+                    catch (RuntimeException ex)
+                    {
+                        System.err.println(ex);
+                    }
+                }
+                try
+                {
+                    subscriber.endOfBatch();
+                }
+                catch (RuntimeException ex)
+                {
+                    System.err.println(ex);
+                }
+            }
+        }
+
+        private void wake()
+        {
+            if (waiting)
+            {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /*
+        Number of events this subscriber lost to the ring wrapping around
+        */
+        public long getDropped()
+        {
+            return dropped;
+        }
+
+        /*
+        Stops delivery; a batch being delivered is cut short
+        */
+        @Override
+        public void close()
+        {
+            closed = true;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+    }
+}
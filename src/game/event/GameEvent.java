@@ -0,0 +1,72 @@
+package game.event;
+
+/*
+One thing that happened in a game, as an EventBus hands it to a
+subscriber.  Every subscription refills one instance for each event, so a
+subscriber must copy out whatever it keeps past onEvent.
+
+    MOVE_PLAYED     side dropped a disc in column, ply moves are now played
+    TURN_CHANGED    side is to move
+    GAME_WON        side won with the move that made ply
+    DRAW            the board is full; side is -1
+    ABANDONED       side left before the game was over
+*/
+public final class GameEvent
+{
+    public enum Type
+    {
+        MOVE_PLAYED, TURN_CHANGED, GAME_WON, DRAW, ABANDONED
+    }
+
+    static final Type[] TYPES = Type.values();
+
+    long sequence;
+    Type type;
+    long game;
+    int ply;
+    int column;
+    int side;
+
+    /*
+    Position of the event in the bus, counting from 0
+    */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public long getGame()
+    {
+        return game;
+    }
+
+    public int getPly()
+    {
+        return ply;
+    }
+
+    /*
+    Column of a MOVE_PLAYED, -1 for the other types
+    */
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public int getSide()
+    {
+        return side;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "game " + game + " " + type + " ply " + ply + (column >= 0 ? " column " + column : "")
+                + (side >= 0 ? " side " + side : "");
+    }
+}
@@ -0,0 +1,233 @@
+package game.record;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Which archived games passed through a position and how they ended, as
+written by GameIndexBuilder.  Positions are keyed by Board.getHash, the
+same key the opening book uses, and kept sorted, so a lookup is a binary
+search over the mapped file.  The file is mapped in windows of a
+gigabyte, so it may hold any number of positions.
+
+    header      magic C4GI, version, columns, rows, connect, 0 (6 ints),
+                games, archive end, positions, game ids, positions start
+                (5 longs)
+    game ids    archive offset of every game through each position, grouped
+                by position in key order and ascending within one (longs)
+    positions   key, first game id, and how many of its games the first
+                player won, the second won, were drawn and unfinished
+                (2 longs, 4 ints each)
+
+The archive end is where indexing stopped, so an update only replays the
+games appended after it.
+*/
+public final class GameIndex implements Closeable
+{
+    static final int MAGIC = 0x43344749; // "C4GI"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int POSITION_BYTES = 32;
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final Geometry geometry;
+    private final long games;
+    private final long archiveEnd;
+    private final long positions;
+    private final long ids;
+    private final long positionsStart;
+    private final MappedByteBuffer[] windows;
+
+    private GameIndex(FileChannel channel, ByteBuffer header) throws IOException
+    {
+        this.channel = channel;
+        geometry = Geometry.of(header.getInt(8), header.getInt(12), header.getInt(16));
+        games = header.getLong(24);
+        archiveEnd = header.getLong(32);
+        positions = header.getLong(40);
+        ids = header.getLong(48);
+        positionsStart = header.getLong(56);
+        long size = channel.size();
+        if (positionsStart != HEADER_BYTES + ids * 8 || positionsStart + positions * POSITION_BYTES > size)
+        {
+            throw new IOException("Game index is truncated");
+        }
+        // every field is aligned to its own size, so none straddles two windows
+        windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_SHIFT)];
+        for (int i = 0; i < windows.length; i++)
+        {
+            long start = (long) i << WINDOW_SHIFT;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << WINDOW_SHIFT, size - start));
+        }
+    }
+
+    public static GameIndex open(Path path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            {
+                throw new IOException(path + " is not a game index");
+            }
+            return new GameIndex(channel, header);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public Geometry getGeometry()
+    {
+        return geometry;
+    }
+
+    /*
+    Number of games indexed
+    */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /*
+    Number of distinct positions indexed
+    */
+    public long getPositions()
+    {
+        return positions;
+    }
+
+    /*
+    Archive offset up to which games are indexed
+    */
+    public long getArchiveEnd()
+    {
+        return archiveEnd;
+    }
+
+    /*
+    How the games through this position ended, indexed by the GameRecord
+    result codes; all zero for a position no game reached
+    */
+    public int[] results(Board board)
+    {
+        int[] results = new int[4];
+        long slot = find(board);
+        if (slot >= 0)
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                results[i] = result(slot, i);
+            }
+        }
+        return results;
+    }
+
+    /*
+    Archive offsets of at most limit games through this position, oldest
+    first; GameRecordReader.seek goes to one
+    */
+    public long[] games(Board board, int limit)
+    {
+        long slot = find(board);
+        if (slot < 0)
+        {
+            return new long[0];
+        }
+        long first = firstId(slot);
+        long end = slot + 1 < positions ? firstId(slot + 1) : ids;
+        long[] found = new long[(int) Math.min(limit, end - first)];
+        for (int i = 0; i < found.length; i++)
+        {
+            found[i] = id(first + i);
+        }
+        return found;
+    }
+
+    /*
+    Slot of the position, or -1
+    */
+    private long find(Board board)
+    {
+        if (board.getGeometry() != geometry)
+        {
+            return -1;
+        }
+        long key = board.getHash();
+        long low = 0;
+        long high = positions - 1;
+        while (low <= high)
+        {
+            long mid = (low + high) >>> 1;
+            long found = key(mid);
+            if (found < key)
+                low = mid + 1;
+            else if (found > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    long key(long slot)
+    {
+        return getLong(positionsStart + slot * POSITION_BYTES);
+    }
+
+    long firstId(long slot)
+    {
+        return getLong(positionsStart + slot * POSITION_BYTES + 8);
+    }
+
+    int result(long slot, int result)
+    {
+        long offset = positionsStart + slot * POSITION_BYTES + 16 + result * 4;
+        return windows[(int) (offset >>> WINDOW_SHIFT)].getInt((int) (offset & WINDOW_MASK));
+    }
+
+    long id(long index)
+    {
+        return getLong(HEADER_BYTES + index * 8);
+    }
+
+    long getIds()
+    {
+        return ids;
+    }
+
+    private long getLong(long offset)
+    {
+        return windows[(int) (offset >>> WINDOW_SHIFT)].getLong((int) (offset & WINDOW_MASK));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    static void writeHeader(ByteBuffer header, Geometry geometry, long games, long archiveEnd, long positions,
+            long ids)
+    {
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(geometry.getColumns()).putInt(geometry.getRows()).putInt(geometry.getConnect())
+                .putInt(0)
+                .putLong(games).putLong(archiveEnd).putLong(positions).putLong(ids)
+                .putLong(HEADER_BYTES + ids * 8);
+    }
+}
@@ -0,0 +1,463 @@
+package game.record;
+
+import game.Arguments;
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+Builds a GameIndex from an archive, or brings one up to date.  Every game
+of the index's geometry is replayed, and each position it passed through,
+from the empty board to its last move, gives a pair of position key and
+game.  Pairs are collected a run at a time, radix sorted by key and
+spilled to a run file next to the index; then the runs and the positions
+already indexed are merged into a new index, which replaces the old one
+only once it is complete.  Memory use is set by the run size alone, so
+archives of hundreds of millions of positions index the same way as small
+ones.
+
+Archives only grow at the end, so an update replays just the games after
+the indexed archive end, and those all have larger ids than the indexed
+ones.
+
+    java game.Driver index --archive=games.bin [--index=games.idx]
+        [--geometry=6x7/4] [--run=pairs held in memory]
+    java game.Driver index [--index=games.idx] --moves=4435 [--limit=games listed]
+*/
+public class GameIndexBuilder
+{
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+
+    private final Path indexPath;
+    private final Geometry geometry;
+    // the current run: position keys and game id << 2 | result
+    private final long[] keys;
+    private final long[] values;
+    private final long[] sortedKeys;
+    private final long[] sortedValues;
+    private int filled;
+    private final List<Path> runs = new ArrayList<>();
+
+    public GameIndexBuilder(Path indexPath, Geometry geometry, int runSize)
+    {
+        this.indexPath = indexPath;
+        this.geometry = geometry;
+        keys = new long[runSize];
+        values = new long[runSize];
+        sortedKeys = new long[runSize];
+        sortedValues = new long[runSize];
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Arguments arguments = new Arguments(args);
+        Path index = Paths.get(arguments.get("index", "games.idx"));
+        if (arguments.has("moves"))
+        {
+            query(index, arguments.get("moves", ""), arguments.getInt("limit", 10));
+            return;
+        }
+        if (!arguments.has("archive"))
+        {
+            System.err.println("Give the archive to index with --archive=file, or a position to look up with --moves");
+            return;
+        }
+        GameIndexBuilder builder = new GameIndexBuilder(index,
+                Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString())),
+                arguments.getInt("run", 1 << 21));
+        builder.update(Paths.get(arguments.get("archive", "")));
+    }
+
+    /*
+    Prints how the games through the position after these moves ended
+    */
+    private static void query(Path path, String moves, int limit) throws IOException
+    {
+        try (GameIndex index = GameIndex.open(path))
+        {
+            Board board = new Board(index.getGeometry());
+            for (int i = 0; i < moves.length(); i++)
+            {
+                int col = Character.digit(moves.charAt(i), 36) - 1;
+                if (!board.canPlay(col) || board.lastMoveWins())
+                {
+                    System.err.println("Move " + (i + 1) + " of " + moves + " cannot be played");
+                    return;
+                }
+                board.play(col);
+            }
+            int[] results = index.results(board);
+            System.out.printf("%d games: first wins %d, second wins %d, draws %d, unfinished %d%n",
+                    results[0] + results[1] + results[2] + results[3],
+                    results[GameRecord.FIRST_WINS], results[GameRecord.SECOND_WINS], results[GameRecord.DRAW],
+                    results[GameRecord.UNFINISHED]);
+            for (long game : index.games(board, limit))
+            {
+                System.out.println("game at archive offset " + game);
+            }
+        }
+    }
+
+    /*
+    Indexes the games of the archive not yet in the index
+    */
+    public void update(Path archive) throws IOException
+    {
+        GameIndex old = Files.exists(indexPath) ? GameIndex.open(indexPath) : null;
+        Path partial = indexPath.resolveSibling(indexPath.getFileName() + ".partial");
+        try
+        {
+            long games = 0;
+            long start = 0;
+            if (old != null)
+            {
+                if (old.getGeometry() != geometry)
+                {
+                    throw new IOException(indexPath + " indexes " + old.getGeometry() + " games, not " + geometry);
+                }
+                games = old.getGames();
+                start = old.getArchiveEnd();
+            }
+
+            long added = 0;
+            long skipped = 0;
+            long pairs = 0;
+            long end;
+            long begin = System.nanoTime();
+            long lastReport = begin;
+            try (GameRecordReader reader = new GameRecordReader(archive))
+            {
+                reader.seek(start);
+                Board board = new Board(geometry);
+                while (reader.next())
+                {
+                    if (reader.getGeometry() != geometry)
+                    {
+                        skipped++;
+                        continue;
+                    }
+                    long value = reader.getPosition() << 2 | (reader.getResult() & 3);
+                    board.reset();
+                    add(board.getHash(), value);
+                    for (int i = 0; i < reader.getMoveCount(); i++)
+                    {
+                        board.play(reader.getMove(i));
+                        add(board.getHash(), value);
+                    }
+                    pairs += reader.getMoveCount() + 1;
+                    added++;
+                    long now = System.nanoTime();
+                    if (now - lastReport > PROGRESS_NANOS)
+                    {
+                        System.err.printf("%d games, %d positions read%n", added, pairs);
+                        lastReport = now;
+                    }
+                }
+                end = reader.getEnd();
+            }
+            if (old != null && end == start)
+            {
+                System.out.println(indexPath + " is up to date");
+                return;
+            }
+            sortRun();
+            merge(old, partial, games + added, end);
+            System.out.printf("indexed %d new games, %d positions, in %.1f s; skipped %d of other geometries%n",
+                    added, pairs, (System.nanoTime() - begin) / 1e9, skipped);
+        }
+        finally
+        {
+            if (old != null)
+            {
+                old.close();
+            }
+            for (Path run : runs)
+            {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            filled = 0;
+        }
+        Files.move(partial, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        try (GameIndex index = GameIndex.open(indexPath))
+        {
+            System.out.printf("wrote %s: %d games, %d positions, %d MB%n", indexPath, index.getGames(),
+                    index.getPositions(), Files.size(indexPath) >> 20);
+        }
+    }
+
+    private void add(long key, long value) throws IOException
+    {
+        if (filled == keys.length)
+        {
+            sortRun();
+            spill();
+        }
+        keys[filled] = key;
+        values[filled] = value;
+        filled++;
+    }
+
+    /*
+    Sorts the run by key, a byte per pass from the lowest.  Every pass is
+    stable, so pairs with equal keys stay in game order.
+    */
+    private void sortRun()
+    {
+        long[] fromKeys = keys;
+        long[] fromValues = values;
+        long[] toKeys = sortedKeys;
+        long[] toValues = sortedValues;
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 64 && filled > 0; shift += 8)
+        {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < filled; i++)
+            {
+                counts[digit(fromKeys[i], shift) + 1]++;
+            }
+            if (counts[digit(fromKeys[0], shift) + 1] == filled)
+                continue;
+            for (int d = 0; d < 256; d++)
+            {
+                counts[d + 1] += counts[d];
+            }
+            for (int i = 0; i < filled; i++)
+            {
+                int at = counts[digit(fromKeys[i], shift)]++;
+                toKeys[at] = fromKeys[i];
+                toValues[at] = fromValues[i];
+            }
+            long[] swap = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swap;
+            swap = fromValues;
+            fromValues = toValues;
+            toValues = swap;
+        }
+        if (fromKeys != keys)
+        {
+            System.arraycopy(fromKeys, 0, keys, 0, filled);
+            System.arraycopy(fromValues, 0, values, 0, filled);
+        }
+    }
+
+    // keys sort as signed longs, like the binary search compares them
+    private static int digit(long key, int shift)
+    {
+        return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+    }
+
+    private void spill() throws IOException
+    {
+        Path run = indexPath.resolveSibling(indexPath.getFileName() + ".run" + runs.size());
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16)))
+        {
+            for (int i = 0; i < filled; i++)
+            {
+                out.writeLong(keys[i]);
+                out.writeLong(values[i]);
+            }
+        }
+        filled = 0;
+    }
+
+    /*
+    Writes the indexed positions merged with the runs: game ids straight
+    into the new index, positions into a file of their own that is appended
+    once its length is known
+    */
+    private void merge(GameIndex old, Path partial, long games, long archiveEnd) throws IOException
+    {
+        PriorityQueue<Source> queue = new PriorityQueue<>(
+                Comparator.comparingLong((Source source) -> source.key).thenComparingLong(source -> source.value));
+        List<Source> sources = new ArrayList<>();
+        Path positionsFile = indexPath.resolveSibling(indexPath.getFileName() + ".positions");
+        long ids = 0;
+        long positions = 0;
+        try
+        {
+            for (Path run : runs)
+            {
+                sources.add(new RunSource(run));
+            }
+            sources.add(new MemorySource(keys, values, filled));
+            for (Source source : sources)
+            {
+                if (source.next())
+                    queue.add(source);
+            }
+
+            try (DataOutputStream idsOut = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(partial), 1 << 16));
+                 DataOutputStream positionsOut = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(positionsFile), 1 << 16)))
+            {
+                idsOut.write(new byte[GameIndex.HEADER_BYTES]);
+                long oldSlot = 0;
+                long oldPositions = old == null ? 0 : old.getPositions();
+                int[] results = new int[4];
+                while (oldSlot < oldPositions || !queue.isEmpty())
+                {
+                    long key;
+                    if (queue.isEmpty())
+                        key = old.key(oldSlot);
+                    else if (oldSlot < oldPositions)
+                        key = Math.min(old.key(oldSlot), queue.peek().key);
+                    else
+                        key = queue.peek().key;
+                    long first = ids;
+                    Arrays.fill(results, 0);
+                    if (oldSlot < oldPositions && old.key(oldSlot) == key)
+                    {
+                        long end = oldSlot + 1 < oldPositions ? old.firstId(oldSlot + 1) : old.getIds();
+                        for (long i = old.firstId(oldSlot); i < end; i++, ids++)
+                        {
+                            idsOut.writeLong(old.id(i));
+                        }
+                        for (int r = 0; r < 4; r++)
+                        {
+                            results[r] = old.result(oldSlot, r);
+                        }
+                        oldSlot++;
+                    }
+                    while (!queue.isEmpty() && queue.peek().key == key)
+                    {
+                        Source source = queue.poll();
+                        idsOut.writeLong(source.value >>> 2);
+                        ids++;
+                        int result = (int) source.value & 3;
+                        results[result] = Math.addExact(results[result], 1);
+                        if (source.next())
+                            queue.add(source);
+                    }
+                    positionsOut.writeLong(key);
+                    positionsOut.writeLong(first);
+                    for (int r = 0; r < 4; r++)
+                    {
+                        positionsOut.writeInt(results[r]);
+                    }
+                    positions++;
+                }
+            }
+
+            try (FileChannel out = FileChannel.open(partial, StandardOpenOption.WRITE);
+                 FileChannel in = FileChannel.open(positionsFile, StandardOpenOption.READ))
+            {
+                long at = GameIndex.HEADER_BYTES + ids * 8;
+                long size = in.size();
+                for (long copied = 0; copied < size; )
+                {
+                    copied += out.transferFrom(in, at + copied, size - copied);
+                }
+                ByteBuffer header = ByteBuffer.allocate(GameIndex.HEADER_BYTES);
+                GameIndex.writeHeader(header, geometry, games, archiveEnd, positions, ids);
+                header.flip();
+                while (header.hasRemaining())
+                {
+                    out.write(header, header.position());
+                }
+                out.force(true);
+            }
+        }
+        finally
+        {
+            for (Source source : sources)
+            {
+                source.close();
+            }
+            Files.deleteIfExists(positionsFile);
+        }
+    }
+
+    /*
+    A sorted run of pairs being merged
+    */
+    private abstract static class Source
+    {
+        long key;
+        long value;
+
+        abstract boolean next() throws IOException;
+
+        void close() throws IOException
+        {
+        }
+    }
+
+    private static final class RunSource extends Source
+    {
+        private final DataInputStream in;
+        private long remaining;
+
+        RunSource(Path run) throws IOException
+        {
+            remaining = Files.size(run) / 16;
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+
+        @Override
+        boolean next() throws IOException
+        {
+            if (remaining == 0)
+            {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            value = in.readLong();
+            return true;
+        }
+
+        @Override
+        void close() throws IOException
+        {
+            in.close();
+        }
+    }
+
+    private static final class MemorySource extends Source
+    {
+        private final long[] keys;
+        private final long[] values;
+        private final int count;
+        private int next;
+
+        MemorySource(long[] keys, long[] values, int count)
+        {
+            this.keys = keys;
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        boolean next()
+        {
+            if (next == count)
+            {
+                return false;
+            }
+            key = keys[next];
+            value = values[next];
+            next++;
+            return true;
+        }
+    }
+}
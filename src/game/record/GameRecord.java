@@ -0,0 +1,46 @@
+package game.record;
+
+/*
+Layout of the game archive.  A file starts with the magic and a version
+byte, followed by records written back to back:
+
+    columns, rows, connect, result          4 bytes
+    timestamp, epoch millis                 8 bytes
+    first player name, second player name   1 length byte + ASCII each
+    move count                              2 bytes
+    moves                                   bitsPerMove bits each, packed
+                                            low bits first, padded to a byte
+
+bitsPerMove is the fewest bits that hold a column index: 3 on the classic
+board, 4 up to 16 columns.
+*/
+public final class GameRecord
+{
+    public static final int FIRST_WINS = 0;
+    public static final int SECOND_WINS = 1;
+    public static final int DRAW = 2;
+    public static final int UNFINISHED = 3;
+
+    static final int MAGIC = 0x43344752; // "C4GR"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 5;
+    // records are far smaller; the reader keeps at least this much mapped ahead
+    static final int MAX_RECORD_BYTES = 1 << 16;
+
+    private GameRecord()
+    {
+    }
+
+    static int bitsPerMove(int columns)
+    {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(columns - 1));
+    }
+
+    /*
+    Maps a GameRunner style winner (0, 1, or -1 for a draw) to a result code
+    */
+    public static int resultOf(int winner)
+    {
+        return winner == 0 ? FIRST_WINS : winner == 1 ? SECOND_WINS : DRAW;
+    }
+}
@@ -0,0 +1,223 @@
+package game.record;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Walks an archive record by record straight out of mapped memory.  The file
+is mapped a window at a time, so archives of any size can be read without
+loading them; the accessors read the current record in place, and nothing
+is allocated per record unless a player name is asked for.
+
+    try (GameRecordReader reader = new GameRecordReader(path))
+    {
+        while (reader.next())
+        {
+            ... reader.getResult(), reader.getMove(i) ...
+        }
+    }
+*/
+public class GameRecordReader implements Closeable
+{
+    private static final long WINDOW_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    // offsets of the current record inside the window
+    private int record = -1;
+    private int movesOffset;
+    private int moveCount;
+    private int bits;
+
+    public GameRecordReader(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+        if (size < GameRecord.FILE_HEADER_BYTES || window.getInt(0) != GameRecord.MAGIC
+                || window.get(4) != GameRecord.VERSION)
+        {
+            channel.close();
+            throw new IOException(path + " is not a game archive");
+        }
+        position = GameRecord.FILE_HEADER_BYTES;
+    }
+
+    /*
+    Moves to the next record; false at the end of the archive
+    */
+    public boolean next() throws IOException
+    {
+        if (record >= 0)
+        {
+            position = windowStart + movesOffset + (moveCount * bits + 7) / 8;
+        }
+        if (position >= size)
+        {
+            return false;
+        }
+        if (position + GameRecord.MAX_RECORD_BYTES > windowStart + window.capacity() && windowStart + window.capacity() < size)
+        {
+            map(position);
+        }
+        record = (int) (position - windowStart);
+        // an archive whose writer was never closed can end anywhere in a record
+        int offset = record + 12;
+        require(offset + 1);
+        bits = GameRecord.bitsPerMove(window.get(record) & 0xFF);
+        offset += 1 + (window.get(offset) & 0xFF);
+        require(offset + 1);
+        offset += 1 + (window.get(offset) & 0xFF);
+        require(offset + 2);
+        moveCount = window.getShort(offset) & 0xFFFF;
+        movesOffset = offset + 2;
+        require(movesOffset + (moveCount * bits + 7) / 8);
+        return true;
+    }
+
+    /*
+    Fails unless the archive holds the current record up to this window offset
+    */
+    private void require(int end) throws IOException
+    {
+        if (windowStart + end > size)
+        {
+            throw new IOException("Archive ends inside a record at byte " + position);
+        }
+    }
+
+    /*
+    Makes next() read the record at this file offset, as returned by
+    getPosition, or the first record for 0
+    */
+    public void seek(long offset) throws IOException
+    {
+        position = Math.max(offset, GameRecord.FILE_HEADER_BYTES);
+        record = -1;
+        if (position < windowStart && position < size)
+        {
+            map(position);
+        }
+    }
+
+    /*
+    File offset just past the last record read, where an appended record
+    would start
+    */
+    public long getEnd()
+    {
+        return record < 0 ? position : windowStart + movesOffset + (moveCount * bits + 7) / 8;
+    }
+
+    private void map(long start) throws IOException
+    {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+    }
+
+    public Geometry getGeometry()
+    {
+        return Geometry.of(window.get(record) & 0xFF, window.get(record + 1) & 0xFF, window.get(record + 2) & 0xFF);
+    }
+
+    public int getResult()
+    {
+        return window.get(record + 3);
+    }
+
+    public long getTimestamp()
+    {
+        return window.getLong(record + 4);
+    }
+
+    public String getPlayer(int side)
+    {
+        int offset = record + 12;
+        if (side == 1)
+        {
+            offset += 1 + (window.get(offset) & 0xFF);
+        }
+        byte[] name = new byte[window.get(offset) & 0xFF];
+        window.get(offset + 1, name);
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public int getMove(int index)
+    {
+        int bit = index * bits;
+        int move = 0;
+        for (int b = 0; b < bits; b++, bit++)
+        {
+            if ((window.get(movesOffset + (bit >>> 3)) & (1 << (bit & 7))) != 0)
+                move |= 1 << b;
+        }
+        return move;
+    }
+
+    /*
+    Replays the current record onto a fresh board
+    */
+    public Board toBoard()
+    {
+        Board board = new Board(getGeometry());
+        for (int i = 0; i < moveCount; i++)
+        {
+            board.play(getMove(i));
+        }
+        return board;
+    }
+
+    /*
+    File offset of the current record, usable as a game id
+    */
+    public long getPosition()
+    {
+        return windowStart + record;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /*
+    Prints how many games an archive holds and how they ended
+
+        java game.Driver records <file>
+    */
+    public static void main(String[] args) throws IOException
+    {
+        long[] results = new long[4];
+        long games = 0;
+        long plies = 0;
+        try (GameRecordReader reader = new GameRecordReader(Path.of(args[0])))
+        {
+            while (reader.next())
+            {
+                games++;
+                plies += reader.getMoveCount();
+                results[reader.getResult() & 3]++;
+            }
+        }
+        System.out.printf("%d games, %.2f plies on average%n", games, games == 0 ? 0 : (double) plies / games);
+        System.out.printf("first wins %d, second wins %d, draws %d, unfinished %d%n",
+                results[0], results[1], results[2], results[3]);
+    }
+}
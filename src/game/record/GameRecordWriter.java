@@ -0,0 +1,122 @@
+package game.record;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Appends games to an archive.  Safe to share between game threads; a lock
+rather than synchronized keeps virtual threads from pinning while writing.
+*/
+public class GameRecordWriter implements Closeable
+{
+    private final DataOutputStream out;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long written;
+
+    public GameRecordWriter(Path path) throws IOException
+    {
+        boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16));
+        if (fresh)
+        {
+            out.writeInt(GameRecord.MAGIC);
+            out.writeByte(GameRecord.VERSION);
+        }
+    }
+
+    /*
+    Writes the moves on the board along with the players and result
+    */
+    public void write(Board board, String first, String second, int result, long timestamp) throws IOException
+    {
+        Geometry geometry = board.getGeometry();
+        int bits = GameRecord.bitsPerMove(geometry.getColumns());
+        byte[] moves = new byte[(board.getPly() * bits + 7) / 8];
+        for (int i = 0, bit = 0; i < board.getPly(); i++, bit += bits)
+        {
+            int move = board.getMove(i);
+            for (int b = 0; b < bits; b++)
+            {
+                if ((move & (1 << b)) != 0)
+                    moves[(bit + b) >>> 3] |= (byte) (1 << ((bit + b) & 7));
+            }
+        }
+        byte[] firstName = name(first);
+        byte[] secondName = name(second);
+        if (geometry.getColumns() > 255 || geometry.getRows() > 255 || board.getPly() > 0xFFFF
+                || moves.length + firstName.length + secondName.length + 16 > GameRecord.MAX_RECORD_BYTES)
+        {
+            throw new IllegalArgumentException("Game too large for a record");
+        }
+
+        lock.lock();
+        try
+        {
+            out.writeByte(geometry.getColumns());
+            out.writeByte(geometry.getRows());
+            out.writeByte(geometry.getConnect());
+            out.writeByte(result);
+            out.writeLong(timestamp);
+            out.writeByte(firstName.length);
+            out.write(firstName);
+            out.writeByte(secondName.length);
+            out.write(secondName);
+            out.writeShort(board.getPly());
+            out.write(moves);
+            written++;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] name(String player)
+    {
+        byte[] bytes = player.getBytes(StandardCharsets.US_ASCII);
+        return bytes.length <= 255 ? bytes : Arrays.copyOf(bytes, 255);
+    }
+
+    public long getWritten()
+    {
+        return written;
+    }
+
+    public void flush() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            out.flush();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            out.close();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
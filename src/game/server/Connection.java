@@ -0,0 +1,154 @@
+package game.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+One client socket.  Lines can be sent to it from any game thread; a lock
+rather than synchronized keeps virtual threads from pinning their carrier
+while they write.
+
+Spectator updates are posted instead: they collect in an outbox that a
+virtual thread of the connection writes out, everything waiting in one
+write, so a slow watcher never holds up whoever posts to it.  A watcher
+that lets MAX_OUTBOX characters pile up is disconnected.
+*/
+final class Connection
+{
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    static final int MAX_OUTBOX = 1 << 16;
+    private final StringBuilder outbox = new StringBuilder();
+    private final ReentrantLock outboxLock = new ReentrantLock();
+    private boolean draining;
+    // ids of the unfinished games this connection plays in
+    private final Set<Long> games = ConcurrentHashMap.newKeySet();
+
+    Connection(Socket socket) throws IOException
+    {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+    }
+
+    String getName()
+    {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    void enter(long game)
+    {
+        games.add(game);
+    }
+
+    void leave(long game)
+    {
+        games.remove(game);
+    }
+
+    Set<Long> getGames()
+    {
+        return games;
+    }
+
+    String readLine() throws IOException
+    {
+        return in.readLine();
+    }
+
+    void send(String line)
+    {
+        writeLock.lock();
+        try
+        {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+        catch (IOException ex)
+        {
+            close();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+    Queues lines, separated by newlines, without waiting for the socket
+    */
+    void post(String lines)
+    {
+        outboxLock.lock();
+        try
+        {
+            if (socket.isClosed())
+                return;
+            if (outbox.length() + lines.length() > MAX_OUTBOX)
+            {
+                outbox.setLength(0);
+                close();
+                return;
+            }
+            outbox.append(lines).append('\n');
+            if (draining)
+                return;
+            draining = true;
+        }
+        finally
+        {
+            outboxLock.unlock();
+        }
+        Thread.ofVirtual().name("outbox").start(this::drain);
+    }
+
+    private void drain()
+    {
+        while (true)
+        {
+            String lines;
+            outboxLock.lock();
+            try
+            {
+                if (outbox.length() == 0 || socket.isClosed())
+                {
+                    outbox.setLength(0);
+                    draining = false;
+                    return;
+                }
+                // the last newline is added back by send
+                lines = outbox.substring(0, outbox.length() - 1);
+                outbox.setLength(0);
+            }
+            finally
+            {
+                outboxLock.unlock();
+            }
+            send(lines);
+        }
+    }
+
+    void close()
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (IOException ex)
+        {
+            // already gone
+        }
+    }
+}
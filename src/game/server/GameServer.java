@@ -0,0 +1,295 @@
+package game.server;
+
+import game.Arguments;
+import game.engine.Geometry;
+import game.event.EventBus;
+import game.record.GameRecordWriter;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Hosts any number of games at once over a line based TCP protocol, one
+virtual thread per connection.  Each game is its own Match.
+
+    NEW [geometry]        -> OK <id>            creates a game, you move first
+    JOIN <id>             -> OK <id> 1          takes the second seat
+                             (the creator is told JOINED <id>)
+    MOVE <id> <column>    -> OK | WIN <side> | DRAW
+                             (the opponent is told MOVED <id> <column>)
+    STATE <id>            -> STATE <id> <geometry> <moves> <TURN n | WON n | DRAWN | ABANDONED n>
+    WATCH <id>            -> STATE ... , then batched updates as SpectatorHub
+                             describes them; an update may repeat moves the
+                             STATE already had, its ply tells which
+    QUIT
+A player who quits or drops the connection mid-game abandons it: the game
+ends, the opponent is told ABANDONED <id> <side> and spectators hear the
+same.  Errors come back as ERR <reason>.  With --record=file finished games are
+appended to that archive.  NEW only offers the board sizes listed with
+--geometries, the classic board unless told otherwise; clients never get
+to pick an arbitrary size.
+
+Every move is published on an EventBus; spectators are one subscriber of
+it, and --log-events prints every event as another.
+
+    java game.Driver server [--port=4000] [--record=file] [--log-events]
+        [--geometries=6x7/4,7x6/4,...]
+*/
+public class GameServer
+{
+    private final ConcurrentHashMap<Long, Match> matches = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ServerSocket serverSocket;
+    private GameRecordWriter recorder;
+    private final ConcurrentHashMap<String, Geometry> geometries = new ConcurrentHashMap<>();
+    private final EventBus events = new EventBus(16);
+    private final SpectatorHub spectators = new SpectatorHub(this::state, 50);
+
+    public GameServer(int port) throws IOException
+    {
+        serverSocket = new ServerSocket(port, 4096);
+        geometries.put(Geometry.STANDARD.toString(), Geometry.STANDARD);
+        events.subscribe("spectators", spectators);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Arguments arguments = new Arguments(args);
+        GameServer server = new GameServer(arguments.getInt("port", 4000));
+        if (arguments.has("record"))
+        {
+            server.recordTo(new GameRecordWriter(Paths.get(arguments.get("record", ""))));
+        }
+        if (arguments.has("geometries"))
+        {
+            for (String spec : arguments.get("geometries", "").split(","))
+            {
+                server.allowGeometry(Geometry.parse(spec));
+            }
+        }
+        if (arguments.has("log-events"))
+        {
+            server.getEvents().subscribe("event-log", event -> System.out.println(event));
+        }
+        System.out.println("listening on port " + server.getPort());
+        server.serve();
+    }
+
+    /*
+    Offers this board size besides the classic one
+    */
+    public void allowGeometry(Geometry geometry)
+    {
+        geometries.put(geometry.toString(), geometry);
+    }
+
+    public void recordTo(GameRecordWriter writer)
+    {
+        recorder = writer;
+    }
+
+    /*
+    Moves, turns and results of every hosted game
+    */
+    public EventBus getEvents()
+    {
+        return events;
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    public void serve() throws IOException
+    {
+        while (!serverSocket.isClosed())
+        {
+            Socket socket = serverSocket.accept();
+            Thread.ofVirtual().name("client").start(() -> handle(socket));
+        }
+    }
+
+    public void close() throws IOException
+    {
+        serverSocket.close();
+        events.close();
+        if (recorder != null)
+        {
+            recorder.close();
+        }
+    }
+
+    public int activeGames()
+    {
+        return matches.size();
+    }
+
+    private void handle(Socket socket)
+    {
+        Connection connection;
+        try
+        {
+            connection = new Connection(socket);
+        }
+        catch (IOException ex)
+        {
+            return;
+        }
+        try
+        {
+            String line;
+            while ((line = connection.readLine()) != null)
+            {
+                String[] words = line.trim().split(" +");
+                if (words[0].equals("QUIT"))
+                    break;
+                String reply = execute(connection, words);
+                if (reply != null)
+                {
+                    connection.send(reply);
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            // client went away
+        }
+        finally
+        {
+            spectators.unwatch(connection);
+            for (Long id : connection.getGames())
+            {
+                Match match = matches.get(id);
+                if (match != null && match.abandon(connection))
+                {
+                    finish(match);
+                    Connection opponent = match.opponentOf(connection);
+                    if (opponent != null)
+                    {
+                        opponent.send("ABANDONED " + id + " " + match.seatOf(connection));
+                    }
+                }
+            }
+            connection.close();
+        }
+    }
+
+    /*
+    Returns the reply, or null when the command already answered
+    */
+    private String execute(Connection connection, String[] words)
+    {
+        try
+        {
+            switch (words[0])
+            {
+                case "NEW":
+                {
+                    Geometry geometry = words.length > 1 ? geometries.get(words[1]) : Geometry.STANDARD;
+                    if (geometry == null)
+                        return "ERR board size not offered " + words[1];
+                    long id = nextId.getAndIncrement();
+                    matches.put(id, new Match(id, geometry, connection, events));
+                    connection.enter(id);
+                    return "OK " + id;
+                }
+                case "JOIN":
+                {
+                    Match match = find(words);
+                    Connection creator = match.join(connection);
+                    if (creator == null)
+                        return "ERR game is full";
+                    connection.enter(match.getId());
+                    // the joiner hears back before the creator can move
+                    connection.send("OK " + match.getId() + " 1");
+                    creator.send("JOINED " + match.getId());
+                    return null;
+                }
+                case "MOVE":
+                    return move(connection, find(words), Integer.parseInt(words[2]));
+                case "STATE":
+                    return "STATE " + find(words).describe();
+                case "WATCH":
+                {
+                    Match match = find(words);
+                    spectators.watch(match.getId(), connection);
+                    return "STATE " + match.describe();
+                }
+                default:
+                    return "ERR unknown command " + words[0];
+            }
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException ex)
+        {
+            return "ERR " + ex.getMessage();
+        }
+    }
+
+    private String move(Connection connection, Match match, int col)
+    {
+        String refused = match.move(connection, col);
+        if (refused != null)
+        {
+            return "ERR " + refused;
+        }
+        String reply;
+        switch (match.getStatus())
+        {
+            case Match.WON:
+                reply = "WIN " + match.lastSide();
+                finish(match);
+                break;
+            case Match.DRAWN:
+                reply = "DRAW";
+                finish(match);
+                break;
+            default:
+                reply = "OK";
+        }
+        // the mover hears back before the opponent can answer
+        connection.send(reply);
+        Connection opponent = match.opponentOf(connection);
+        if (opponent != null)
+        {
+            opponent.send("MOVED " + match.getId() + " " + col);
+        }
+        return null;
+    }
+
+    private void finish(Match match)
+    {
+        matches.remove(match.getId());
+        match.leave();
+        if (recorder != null)
+        {
+            try
+            {
+                match.record(recorder);
+            }
+            catch (IOException ex)
+            {
+                System.err.println(ex.getMessage());
+            }
+        }
+    }
+
+    private String state(long id)
+    {
+        Match match = matches.get(id);
+        return match == null ? null : "STATE " + match.describe();
+    }
+
+    private Match find(String[] words)
+    {
+        Match match = matches.get(Long.parseLong(words[1]));
+        if (match == null)
+        {
+            throw new IllegalArgumentException("no game " + words[1]);
+        }
+        return match;
+    }
+}
@@ -0,0 +1,207 @@
+package game.server;
+
+import game.Arguments;
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Loopback load for the game server: opens two connections per game, plays
+random legal moves on all games at once and reports the move round trip
+latency percentiles.  Starts its own server unless --port points at one.
+Without think time every game moves as fast as it can, which measures
+throughput; --think=millis paces the players like people at a board.
+
+    java game.Driver load [--games=10000] [--think=millis] [--host=localhost --port=4000]
+*/
+public class LoadGenerator
+{
+    // latency histogram in 10 microsecond buckets, the last one catches the rest
+    private static final int BUCKET_NANOS = 10_000;
+    private static final int BUCKETS = 100_000;
+
+    private final String host;
+    private final int port;
+    private final long thinkMillis;
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public LoadGenerator(String host, int port, long thinkMillis)
+    {
+        this.host = host;
+        this.port = port;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Arguments arguments = new Arguments(args);
+        int games = arguments.getInt("games", 10_000);
+        GameServer server = null;
+        int port = arguments.getInt("port", 0);
+        if (port == 0)
+        {
+            server = new GameServer(0);
+            port = server.getPort();
+            GameServer local = server;
+            Thread.ofPlatform().daemon().name("server").start(() ->
+            {
+                try
+                {
+                    local.serve();
+                }
+                catch (IOException ex)
+                {
+                    // closed at the end of the run
+                }
+            });
+        }
+        new LoadGenerator(arguments.get("host", "localhost"), port, arguments.getLong("think", 0)).run(games, arguments.getLong("seed", 1));
+        if (server != null)
+        {
+            server.close();
+        }
+    }
+
+    public void run(int games, long seed) throws InterruptedException
+    {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int game = 0; game < games; game++)
+            {
+                CompletableFuture<Long> id = new CompletableFuture<>();
+                long gameSeed = seed * 1_000_003L + game;
+                executor.execute(() -> play(0, id, gameSeed));
+                executor.execute(() -> play(1, id, ~gameSeed));
+            }
+        }
+        report(games, System.nanoTime() - start);
+    }
+
+    /*
+    One seat of one game; seat 0 creates it and hands the id to seat 1
+    */
+    private void play(int seat, CompletableFuture<Long> id, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Board board = new Board(Geometry.STANDARD);
+        try (Socket socket = new Socket(host, port))
+        {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true);
+            long game;
+            if (seat == 0)
+            {
+                out.println("NEW");
+                game = Long.parseLong(in.readLine().split(" ")[1]);
+                id.complete(game);
+                expect(in.readLine(), "JOINED");
+            }
+            else
+            {
+                game = id.join();
+                out.println("JOIN " + game);
+                expect(in.readLine(), "OK");
+            }
+
+            while (true)
+            {
+                if (board.sideToMove() == seat)
+                {
+                    int col;
+                    do
+                    {
+                        col = random.nextInt(board.getGeometry().getColumns());
+                    }
+                    while (!board.canPlay(col));
+                    if (thinkMillis > 0)
+                    {
+                        Thread.sleep(random.nextLong(thinkMillis) + 1);
+                    }
+                    long sent = System.nanoTime();
+                    out.println("MOVE " + game + " " + col);
+                    String reply = in.readLine();
+                    record(System.nanoTime() - sent);
+                    board.play(col);
+                    if (!reply.equals("OK"))
+                    {
+                        if (reply.startsWith("ERR"))
+                            failures.increment();
+                        break;
+                    }
+                }
+                else
+                {
+                    String[] words = in.readLine().split(" ");
+                    expect(words[0], "MOVED");
+                    board.play(Integer.parseInt(words[2]));
+                    if (board.lastMoveWins() || board.isFull())
+                        break;
+                }
+            }
+            out.println("QUIT");
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            failures.increment();
+            id.completeExceptionally(ex);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void expect(String line, String prefix)
+    {
+        if (line == null || !line.startsWith(prefix))
+        {
+            throw new IllegalStateException("expected " + prefix + " but got " + line);
+        }
+    }
+
+    private void record(long nanos)
+    {
+        moves.increment();
+        histogram.incrementAndGet((int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1));
+    }
+
+    private void report(int games, long elapsedNanos)
+    {
+        long total = moves.sum();
+        System.out.printf("%d games, %d moves in %.2f s (%.0f moves/s), %d failures%n",
+                games, total, elapsedNanos / 1e9, total * 1e9 / elapsedNanos, failures.sum());
+        System.out.printf("move latency p50 %s, p99 %s, p99.9 %s, max %s%n",
+                percentile(total, 0.50), percentile(total, 0.99), percentile(total, 0.999), percentile(total, 1.0));
+    }
+
+    private String percentile(long total, double fraction)
+    {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += histogram.get(i);
+            if (seen >= rank && seen > 0)
+            {
+                return i == BUCKETS - 1 ? ">1 s" : String.format("%.2f ms", (i + 1) * BUCKET_NANOS / 1e6);
+            }
+        }
+        return "-";
+    }
+}
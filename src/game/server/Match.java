@@ -0,0 +1,154 @@
+package game.server;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import game.event.EventBus;
+import game.event.GameEvent;
+import game.record.GameRecord;
+import game.record.GameRecordWriter;
+import java.io.IOException;
+
+/*
+State of one hosted game.  Everything a game needs lives here, so games
+never share anything but the server's lookup table and the event bus that
+every move is published on.
+*/
+final class Match
+{
+    static final int PLAYING = 0;
+    static final int WON = 1;
+    static final int DRAWN = 2;
+    static final int ABANDONED = 3;
+
+    private final long id;
+    private final Board board;
+    private final EventBus events;
+    private final Connection[] seats = new Connection[2];
+    private int status = PLAYING;
+    private int leaver = -1;
+
+    Match(long id, Geometry geometry, Connection creator, EventBus events)
+    {
+        this.id = id;
+        this.events = events;
+        board = new Board(geometry);
+        seats[0] = creator;
+    }
+
+    long getId()
+    {
+        return id;
+    }
+
+    synchronized Connection join(Connection player)
+    {
+        if (seats[1] != null)
+        {
+            return null;
+        }
+        seats[1] = player;
+        return seats[0];
+    }
+
+    /*
+    Applies a move for the given connection.  Returns null on success or the
+    reason the move was refused; the legality rule is the one the game window
+    uses for a click, Board.canPlay on the lowest open slot of the column.
+    */
+    synchronized String move(Connection player, int col)
+    {
+        if (status != PLAYING)
+            return "game over";
+        if (seats[board.sideToMove()] != player)
+            return "not your turn";
+        if (!board.canPlay(col))
+            return "column not playable";
+        int side = board.sideToMove();
+        board.play(col);
+        events.publish(GameEvent.Type.MOVE_PLAYED, id, board.getPly(), col, side);
+        if (board.lastMoveWins())
+        {
+            status = WON;
+            events.publish(GameEvent.Type.GAME_WON, id, board.getPly(), -1, side);
+        }
+        else if (board.isFull())
+        {
+            status = DRAWN;
+            events.publish(GameEvent.Type.DRAW, id, board.getPly(), -1, -1);
+        }
+        else
+        {
+            events.publish(GameEvent.Type.TURN_CHANGED, id, board.getPly(), -1, board.sideToMove());
+        }
+        return null;
+    }
+
+    /*
+    Ends the game because player left it; false when it was already over
+    */
+    synchronized boolean abandon(Connection player)
+    {
+        if (status != PLAYING)
+        {
+            return false;
+        }
+        status = ABANDONED;
+        leaver = seatOf(player);
+        events.publish(GameEvent.Type.ABANDONED, id, board.getPly(), -1, leaver);
+        return true;
+    }
+
+    synchronized int seatOf(Connection player)
+    {
+        return seats[0] == player ? 0 : 1;
+    }
+
+    /*
+    Takes the game off its players' lists of games in progress
+    */
+    synchronized void leave()
+    {
+        for (Connection seat : seats)
+        {
+            if (seat != null)
+                seat.leave(id);
+        }
+    }
+
+    synchronized int getStatus()
+    {
+        return status;
+    }
+
+    /*
+    Side that moved last, i.e. the winner once the status is WON
+    */
+    synchronized int lastSide()
+    {
+        return 1 - board.sideToMove();
+    }
+
+    synchronized Connection opponentOf(Connection player)
+    {
+        return seats[0] == player ? seats[1] : seats[0];
+    }
+
+    synchronized void record(GameRecordWriter writer) throws IOException
+    {
+        int result = status == WON ? GameRecord.resultOf(lastSide()) : status == DRAWN ? GameRecord.DRAW : GameRecord.UNFINISHED;
+        writer.write(board, seats[0].getName(), seats[1] == null ? "-" : seats[1].getName(), result,
+                System.currentTimeMillis());
+    }
+
+    synchronized String describe()
+    {
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < board.getPly(); i++)
+        {
+            moves.append(board.getMove(i)).append(i + 1 < board.getPly() ? "," : "");
+        }
+        String state = status == WON ? "WON " + lastSide() : status == DRAWN ? "DRAWN"
+                : status == ABANDONED ? "ABANDONED " + leaver : "TURN " + board.sideToMove();
+        return id + " " + board.getGeometry() + " " + (moves.length() == 0 ? "-" : moves) + " " + state;
+    }
+}
@@ -0,0 +1,188 @@
+package game.server;
+
+import game.event.EventBus;
+import game.event.GameEvent;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+/*
+Streams watched games to their spectators.  However many people watch, the
+hub is a single subscriber of the server's event bus, and it sends at most
+one update per game every flush interval, holding all the moves since the
+last one:
+
+    MOVES <id> <ply> <column>,<column>,...   ply moves came before the first
+    WIN <id> <side> | DRAW <id>              when the game ends
+    ABANDONED <id> <side>                    when side left it unfinished
+
+Turn changes follow from the moves and are left out.  An update is built
+once per game and posted to every spectator's outbox, so a slow spectator
+costs the others nothing.  Should the hub fall a whole ring behind the
+bus, each watched game is sent as a fresh STATE line instead.
+*/
+final class SpectatorHub implements EventBus.Subscriber
+{
+    private final ConcurrentHashMap<Long, Watch> watches = new ConcurrentHashMap<>();
+    // games with something to send, only touched by the bus thread
+    private final ArrayList<Watch> pending = new ArrayList<>();
+    private final LongFunction<String> state;
+    private final long flushNanos;
+    private long lastFlush;
+
+    private static final class Watch
+    {
+        final long game;
+        final CopyOnWriteArrayList<Connection> spectators = new CopyOnWriteArrayList<>();
+        final StringBuilder moves = new StringBuilder();
+        int firstPly = -1;
+        String ending;
+        boolean pending;
+
+        Watch(long game)
+        {
+            this.game = game;
+        }
+    }
+
+    /*
+    state gives the STATE line of a game, or null once it is gone
+    */
+    SpectatorHub(LongFunction<String> state, long flushMillis)
+    {
+        this.state = state;
+        flushNanos = flushMillis * 1_000_000L;
+    }
+
+    void watch(long game, Connection spectator)
+    {
+        watches.computeIfAbsent(game, Watch::new).spectators.addIfAbsent(spectator);
+    }
+
+    void unwatch(Connection spectator)
+    {
+        for (Watch watch : watches.values())
+        {
+            watch.spectators.remove(spectator);
+        }
+    }
+
+    int getSpectators()
+    {
+        int count = 0;
+        for (Watch watch : watches.values())
+        {
+            count += watch.spectators.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void onEvent(GameEvent event)
+    {
+        Watch watch = watches.get(event.getGame());
+        if (watch == null)
+        {
+            return;
+        }
+        switch (event.getType())
+        {
+            case MOVE_PLAYED:
+                if (watch.firstPly < 0)
+                    watch.firstPly = event.getPly() - 1;
+                else
+                    watch.moves.append(',');
+                watch.moves.append(event.getColumn());
+                break;
+            case GAME_WON:
+                watch.ending = "WIN " + watch.game + " " + event.getSide();
+                break;
+            case DRAW:
+                watch.ending = "DRAW " + watch.game;
+                break;
+            case ABANDONED:
+                watch.ending = "ABANDONED " + watch.game + " " + event.getSide();
+                break;
+            default:
+                return;
+        }
+        if (!watch.pending)
+        {
+            watch.pending = true;
+            pending.add(watch);
+        }
+    }
+
+    /*
+    Waits out the rest of the flush interval, which lets the events that
+    come in meanwhile pile up in the bus for the next update, then sends
+    */
+    @Override
+    public void endOfBatch()
+    {
+        long wait = lastFlush + flushNanos - System.nanoTime();
+        if (wait > 0)
+        {
+            try
+            {
+                Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lastFlush = System.nanoTime();
+        for (Watch watch : pending)
+        {
+            StringBuilder update = new StringBuilder();
+            if (watch.firstPly >= 0)
+            {
+                update.append("MOVES ").append(watch.game).append(' ').append(watch.firstPly).append(' ')
+                        .append(watch.moves);
+            }
+            if (watch.ending != null)
+            {
+                update.append(update.length() > 0 ? "\n" : "").append(watch.ending);
+                watches.remove(watch.game);
+            }
+            send(watch, update.toString());
+            watch.moves.setLength(0);
+            watch.firstPly = -1;
+            watch.pending = false;
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void dropped(long count)
+    {
+        for (Watch watch : pending)
+        {
+            watch.moves.setLength(0);
+            watch.firstPly = -1;
+            watch.ending = null;
+            watch.pending = false;
+        }
+        pending.clear();
+        for (Watch watch : watches.values())
+        {
+            String line = state.apply(watch.game);
+            if (line == null)
+            {
+                line = "GONE " + watch.game;
+                watches.remove(watch.game);
+            }
+            send(watch, line);
+        }
+    }
+
+    private static void send(Watch watch, String update)
+    {
+        for (Connection spectator : watch.spectators)
+        {
+            spectator.post(update);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package game.sim;
+
+import game.Arguments;
+import game.ai.NegamaxAgent;
+import game.ai.SearchBudget;
+import game.ai.SearchResult;
+import game.ai.TranspositionTable;
+import game.engine.Board;
+import game.engine.Geometry;
+import game.tablebase.Tablebase;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+Solves positions in bulk.  Every input line is a position written as the
+columns played from the empty board, 1 to 9 and then a to z for the tenth
+column on; anything after the first space is ignored.  The moves follow
+the same rules as the game window: a column must have room, and no move
+may follow a win.
+
+Every input line gives one output line, in input order: the moves, then
+"win n" when the side to move wins with its n-th disc from here, "loss n"
+when the opponent does, "draw" for a proven draw, or "eval score" when the
+depth or time limit came first, and after that the best column.  A "?"
+follows n when a limit stopped the search before it could rule out a
+shorter win or a longer defence.  Lines that are
+not a legal game give "invalid" and the reason.
+
+Lines are read as they are needed and at most a few hundred positions per
+thread are held at once, so the input can be any size.  Progress goes to
+standard error every few seconds.
+
+    java game.Driver solve [--in=positions.txt] [--out=results.txt]
+        [--depth=plies] [--time=millis per position] [--threads=n] [--geometry=6x7/4]
+        [--tablebase=file]
+*/
+public class BatchSolver
+{
+    private static final int WINDOW_PER_THREAD = 256;
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+
+    private final Geometry geometry;
+    private final int depth;
+    private final long millis;
+    private final int threads;
+    private final TranspositionTable table = new TranspositionTable(23);
+    private final ThreadLocal<NegamaxAgent> agents;
+    private Tablebase tablebase;
+
+    public BatchSolver(Geometry geometry, int depth, long millis, int threads)
+    {
+        this.geometry = geometry;
+        this.depth = depth;
+        this.millis = millis;
+        this.threads = threads;
+        // the table is lock free and shared; the agents keep per search state
+        agents = ThreadLocal.withInitial(() ->
+        {
+            NegamaxAgent agent = new NegamaxAgent(table, depth);
+            agent.setTablebase(tablebase);
+            return agent;
+        });
+    }
+
+    /*
+    Answers positions late enough for the tablebase without searching
+    */
+    public void useTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Arguments arguments = new Arguments(args);
+        BatchSolver solver = new BatchSolver(
+                Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString())),
+                arguments.getInt("depth", Integer.MAX_VALUE), arguments.getLong("time", 0),
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        if (arguments.has("tablebase"))
+        {
+            solver.useTablebase(Tablebase.open(Paths.get(arguments.get("tablebase", ""))));
+        }
+        try (BufferedReader in = arguments.has("in")
+                ? Files.newBufferedReader(Paths.get(arguments.get("in", "")))
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+             BufferedWriter out = arguments.has("out")
+                ? Files.newBufferedWriter(Paths.get(arguments.get("out", "")))
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)))
+        {
+            solver.solve(in, out);
+        }
+    }
+
+    public void solve(BufferedReader in, BufferedWriter out) throws IOException, InterruptedException
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r ->
+        {
+            Thread thread = new Thread(r, "solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        int limit = threads * WINDOW_PER_THREAD;
+        long start = System.nanoTime();
+        long lastReport = start;
+        long done = 0;
+        try
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String position = line;
+                window.add(workers.submit(() -> solve(position)));
+                if (window.size() >= limit)
+                {
+                    write(window.poll(), out);
+                    done++;
+                }
+                long now = System.nanoTime();
+                if (now - lastReport > PROGRESS_NANOS)
+                {
+                    progress(done, now - start);
+                    lastReport = now;
+                }
+            }
+            while (!window.isEmpty())
+            {
+                write(window.poll(), out);
+                done++;
+            }
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+        out.flush();
+        progress(done, System.nanoTime() - start);
+    }
+
+    private static void write(Future<String> result, BufferedWriter out) throws IOException, InterruptedException
+    {
+        try
+        {
+            out.write(result.get());
+        }
+        catch (ExecutionException ex)
+        {
+            out.write("invalid " + ex.getCause());
+        }
+        out.newLine();
+    }
+
+    private static void progress(long done, long elapsedNanos)
+    {
+        double seconds = elapsedNanos / 1e9;
+        System.err.printf("%d positions in %.1f s (%.0f positions/s)%n", done, seconds,
+                seconds == 0 ? 0 : done / seconds);
+    }
+
+    /*
+    Replays and solves one input line and returns its output line
+    */
+    String solve(String line)
+    {
+        String moves = line.trim();
+        int space = moves.indexOf(' ');
+        if (space >= 0)
+        {
+            moves = moves.substring(0, space);
+        }
+        Board board = new Board(geometry);
+        for (int i = 0; i < moves.length(); i++)
+        {
+            int col = Character.digit(moves.charAt(i), 36) - 1;
+            if (board.lastMoveWins())
+            {
+                return moves + " invalid move " + (i + 1) + " after the game was won";
+            }
+            if (!board.canPlay(col))
+            {
+                return moves + " invalid move " + (i + 1) + " in column " + moves.charAt(i);
+            }
+            board.play(col);
+        }
+        if (board.lastMoveWins())
+        {
+            return moves + " loss 0 -";
+        }
+        if (board.isFull())
+        {
+            return moves + " draw -";
+        }
+
+        SearchBudget budget = millis > 0 ? SearchBudget.millis(millis) : SearchBudget.unlimited();
+        SearchResult result = agents.get().search(board, budget);
+        int score = result.getScore();
+        int remaining = geometry.getCells() - board.getPly();
+        // plies to the end of the game; exact once the search got that deep
+        int plies = NegamaxAgent.WIN - Math.abs(score) - board.getPly();
+        String proven = plies <= result.getDepth() ? "" : "?";
+        String value;
+        if (score >= NegamaxAgent.WIN / 2)
+            value = "win " + ((plies - 1) / 2 + 1) + proven;
+        else if (score <= -NegamaxAgent.WIN / 2)
+            value = "loss " + ((plies - 2) / 2 + 1) + proven;
+        else if (result.getDepth() >= remaining)
+            value = "draw";
+        else
+            value = "eval " + score;
+        return moves + " " + value + " " + Character.forDigit(result.getColumn() + 1, 36);
+    }
+}
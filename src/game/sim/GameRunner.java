@@ -0,0 +1,43 @@
+package game.sim;
+
+import game.ai.Agent;
+import game.ai.SearchBudget;
+import game.engine.Board;
+
+/*
+Plays one game between two agents without any UI
+*/
+public final class GameRunner
+{
+    public static final int DRAW = -1;
+
+    private GameRunner()
+    {
+    }
+
+    /*
+    Plays from the board's current position until someone wins or the board
+    fills up and returns the winning side or DRAW; the moves stay on the board.
+    A millisPerMove of 0 gives agents unlimited time, so searches stop at
+    their depth limit.
+    */
+    public static int play(Board board, Agent first, Agent second, long millisPerMove)
+    {
+        while (!board.isFull())
+        {
+            Agent agent = board.sideToMove() == 0 ? first : second;
+            SearchBudget budget = millisPerMove > 0 ? SearchBudget.millis(millisPerMove) : SearchBudget.unlimited();
+            int col = agent.selectMove(board, budget);
+            if (!board.canPlay(col))
+            {
+                throw new IllegalStateException(agent.getName() + " chose unplayable column " + col);
+            }
+            board.play(col);
+            if (board.lastMoveWins())
+            {
+                return 1 - board.sideToMove();
+            }
+        }
+        return DRAW;
+    }
+}
@@ -0,0 +1,169 @@
+package game.sim;
+
+import game.Arguments;
+import game.ai.Agent;
+import game.ai.Agents;
+import game.engine.Board;
+import game.engine.Geometry;
+import game.record.GameRecord;
+import game.record.GameRecordWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Headless self-play: runs many complete games between two players, one
+virtual thread per game, and reports throughput and results.  With
+--record=file every game is appended to that archive.  Games that fail
+are counted apart from the finished ones, and the first failure is
+thrown once the run is over.
+
+    java game.Driver simulate --games=1000000 --first=random --second=greedy
+        [--geometry=6x7/4] [--time=millis per move] [--seed=n] [--record=file]
+*/
+public class SelfPlay
+{
+    private final Geometry geometry;
+    private final String first;
+    private final String second;
+    private final long millisPerMove;
+    private final long seed;
+    private GameRecordWriter recorder;
+
+    private final LongAdder firstWins = new LongAdder();
+    private final LongAdder secondWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder plies = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+
+    public SelfPlay(Geometry geometry, String first, String second, long millisPerMove, long seed)
+    {
+        this.geometry = geometry;
+        this.first = first;
+        this.second = second;
+        this.millisPerMove = millisPerMove;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException
+    {
+        Arguments arguments = new Arguments(args);
+        SelfPlay selfPlay = new SelfPlay(Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString())),
+                arguments.get("first", "random"), arguments.get("second", "random"),
+                arguments.getLong("time", 0), arguments.getLong("seed", 1));
+        if (arguments.has("record"))
+        {
+            selfPlay.recordTo(new GameRecordWriter(Paths.get(arguments.get("record", ""))));
+        }
+        try
+        {
+            selfPlay.run(arguments.getLong("games", 100_000));
+        }
+        finally
+        {
+            // the games that did finish are kept even when others failed
+            if (selfPlay.recorder != null)
+            {
+                selfPlay.recorder.close();
+            }
+        }
+    }
+
+    public void recordTo(GameRecordWriter writer)
+    {
+        recorder = writer;
+    }
+
+    public void run(long games) throws InterruptedException
+    {
+        // games are CPU bound, so only a few per core need to be in flight
+        Semaphore inFlight = new Semaphore(Runtime.getRuntime().availableProcessors() * 4);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (long game = 0; game < games; game++)
+            {
+                inFlight.acquire();
+                long gameSeed = seed * 1_000_003L + game;
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        playGame(gameSeed);
+                    }
+                    catch (RuntimeException ex)
+                    {
+                        failures.increment();
+                        firstFailure.compareAndSet(null, ex);
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        report(System.nanoTime() - start);
+        if (firstFailure.get() != null)
+        {
+            throw firstFailure.get();
+        }
+    }
+
+    private void playGame(long gameSeed)
+    {
+        Agent firstAgent = Agents.create(first, geometry, gameSeed);
+        Agent secondAgent = Agents.create(second, geometry, ~gameSeed);
+        Board board = new Board(geometry);
+        int winner = GameRunner.play(board, firstAgent, secondAgent, millisPerMove);
+        if (recorder != null)
+        {
+            try
+            {
+                recorder.write(board, first, second, GameRecord.resultOf(winner), System.currentTimeMillis());
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        // counted only once nothing can fail any more
+        if (winner == 0)
+            firstWins.increment();
+        else if (winner == 1)
+            secondWins.increment();
+        else
+            draws.increment();
+        plies.add(board.getPly());
+    }
+
+    /*
+    Rates and shares are of the finished games only
+    */
+    private void report(long elapsedNanos)
+    {
+        long games = firstWins.sum() + secondWins.sum() + draws.sum();
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%s: %s vs %s, %d games in %.2f s (%.0f games/s)%n",
+                geometry, first, second, games, seconds, games / seconds);
+        if (failures.sum() > 0)
+        {
+            System.err.println(failures.sum() + " games failed, the first with " + firstFailure.get());
+        }
+        if (games == 0)
+        {
+            return;
+        }
+        System.out.printf("average plies %.2f%n", (double) plies.sum() / games);
+        System.out.printf("%s wins %.2f%%, %s wins %.2f%%, draws %.2f%%%n",
+                first, 100.0 * firstWins.sum() / games,
+                second, 100.0 * secondWins.sum() / games,
+                100.0 * draws.sum() / games);
+    }
+}
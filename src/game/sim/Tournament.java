@@ -0,0 +1,314 @@
+package game.sim;
+
+import game.Arguments;
+import game.ai.Agent;
+import game.ai.Agents;
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+Round robin between any number of players: every pair plays the same
+number of games, swapping colors from one game to the next.  Both games of
+a color-swapped pair start from the same few random opening moves, so
+players without randomness of their own still play different games.
+
+Every game gets its own seed, derived from --seed and its place in the
+schedule, and its result is stored in that place, so the output does not
+depend on how the games were spread over the cores.  The openings come
+from a separate stream of seeds, so they do not follow the players' own
+randomness.  For repeatable runs the players must not depend on the
+clock, i.e. keep --time at 0 and use depth or playout limits.  A game
+that fails stops the tournament rather than being scored.
+
+Ratings are the maximum likelihood Elo of the Bradley-Terry model with the
+average player at 0, counting a draw as half a win, with one virtual draw
+per pairing so that a player who won or lost every game still gets a
+finite rating.  The interval is 95% from the curvature of the likelihood
+around the rating with the other ratings held fixed.
+
+    java game.Driver tournament --players=random,greedy,negamax:4,mcts:2000
+        [--games=100 per pairing] [--openings=2 random plies] [--geometry=6x7/4]
+        [--time=millis per move] [--seed=n] [--out=tournament.csv]
+*/
+public class Tournament
+{
+    private static final double Z95 = 1.96;
+
+    private final Geometry geometry;
+    private final String[] players;
+    private final int gamesPerPairing;
+    private final int openingPlies;
+    private final long millisPerMove;
+    private final long seed;
+
+    private int[] firstPlayer;
+    private int[] secondPlayer;
+    private int[] openings;
+    private int[] winners;
+    private int[] plies;
+
+    public Tournament(Geometry geometry, String[] players, int gamesPerPairing, int openingPlies,
+            long millisPerMove, long seed)
+    {
+        if (players.length < 2)
+        {
+            throw new IllegalArgumentException("A tournament needs at least two players");
+        }
+        for (String player : players)
+        {
+            // a misspelled player fails here rather than in every game
+            Agents.create(player, geometry, seed);
+        }
+        this.geometry = geometry;
+        this.players = players;
+        this.gamesPerPairing = gamesPerPairing;
+        this.openingPlies = openingPlies;
+        this.millisPerMove = millisPerMove;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException
+    {
+        Arguments arguments = new Arguments(args);
+        Tournament tournament = new Tournament(
+                Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString())),
+                arguments.get("players", "random,greedy,negamax:4").split(","),
+                arguments.getInt("games", 100), arguments.getInt("openings", 2),
+                arguments.getLong("time", 0), arguments.getLong("seed", 1));
+        tournament.run();
+        tournament.writeResults(arguments.get("out", "tournament.csv"));
+        tournament.report();
+    }
+
+    public void run() throws InterruptedException
+    {
+        int pairings = players.length * (players.length - 1) / 2;
+        int games = pairings * gamesPerPairing;
+        firstPlayer = new int[games];
+        secondPlayer = new int[games];
+        openings = new int[games];
+        winners = new int[games];
+        plies = new int[games];
+        int pairs = (gamesPerPairing + 1) / 2;
+        for (int i = 0, game = 0, pairing = 0; i < players.length; i++)
+        {
+            for (int j = i + 1; j < players.length; j++, pairing++)
+            {
+                for (int k = 0; k < gamesPerPairing; k++, game++)
+                {
+                    firstPlayer[game] = k % 2 == 0 ? i : j;
+                    secondPlayer[game] = k % 2 == 0 ? j : i;
+                    // both games of a color-swapped pair share their opening
+                    openings[game] = pairing * pairs + k / 2;
+                }
+            }
+        }
+
+        // one game per core in flight; more would only make each game slower
+        Semaphore inFlight = new Semaphore(Runtime.getRuntime().availableProcessors());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int game = 0; game < games && failure.get() == null; game++)
+            {
+                inFlight.acquire();
+                int index = game;
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        playGame(index);
+                    }
+                    catch (RuntimeException ex)
+                    {
+                        failure.compareAndSet(null, new IllegalStateException("Game " + index + " of "
+                                + players[firstPlayer[index]] + " against " + players[secondPlayer[index]]
+                                + " failed", ex));
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d players, %d games in %.2f s (%.1f games/s)%n",
+                geometry, players.length, games, seconds, games / seconds);
+    }
+
+    private void playGame(int game)
+    {
+        long gameSeed = derive(game, 0);
+        Board board = new Board(geometry);
+        SplittableRandom opening = new SplittableRandom(derive(openings[game], 1));
+        for (int ply = 0; ply < openingPlies && !board.isFull(); ply++)
+        {
+            board.play(openingMove(board, opening));
+        }
+        Agent first = Agents.create(players[firstPlayer[game]], geometry, gameSeed);
+        Agent second = Agents.create(players[secondPlayer[game]], geometry, ~gameSeed);
+        winners[game] = GameRunner.play(board, first, second, millisPerMove);
+        plies[game] = board.getPly();
+    }
+
+    /*
+    The seed of entry index in one of two streams, one for the players and
+    one for the openings; mixing the input keeps nearby seeds unrelated
+    */
+    private long derive(int index, int stream)
+    {
+        return new SplittableRandom((seed * 1_000_003L + index) * 2 + stream).nextLong();
+    }
+
+    /*
+    A random column that does not end the game
+    */
+    private static int openingMove(Board board, SplittableRandom random)
+    {
+        int columns = board.getGeometry().getColumns();
+        int offset = random.nextInt(columns);
+        int fallback = -1;
+        for (int i = 0; i < columns; i++)
+        {
+            int col = (offset + i) % columns;
+            if (!board.canPlay(col))
+                continue;
+            if (!board.isWinningMove(col))
+                return col;
+            fallback = col;
+        }
+        return fallback;
+    }
+
+    /*
+    One line per game: the players by color, the winner's name (empty for
+    a draw) and the game length
+    */
+    public void writeResults(String file) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file)))
+        {
+            out.write("game,first,second,winner,plies");
+            out.newLine();
+            for (int game = 0; game < winners.length; game++)
+            {
+                String winner = winners[game] == 0 ? players[firstPlayer[game]]
+                        : winners[game] == 1 ? players[secondPlayer[game]] : "";
+                out.write(game + "," + players[firstPlayer[game]] + "," + players[secondPlayer[game]]
+                        + "," + winner + "," + plies[game]);
+                out.newLine();
+            }
+        }
+    }
+
+    public void report()
+    {
+        int n = players.length;
+        // score[i][j] is what i scored against j, counting a draw as half
+        double[][] score = new double[n][n];
+        int[][] played = new int[n][n];
+        for (int game = 0; game < winners.length; game++)
+        {
+            int first = firstPlayer[game];
+            int second = secondPlayer[game];
+            played[first][second]++;
+            played[second][first]++;
+            if (winners[game] == 0)
+                score[first][second] += 1;
+            else if (winners[game] == 1)
+                score[second][first] += 1;
+            else
+            {
+                score[first][second] += 0.5;
+                score[second][first] += 0.5;
+            }
+        }
+
+        double[] elo = ratings(score, played);
+        System.out.printf("%-20s %8s %8s %8s %8s%n", "player", "elo", "+-95%", "games", "score");
+        for (int i = 0; i < n; i++)
+        {
+            double information = 0;
+            double total = 0;
+            int games = 0;
+            for (int j = 0; j < n; j++)
+            {
+                if (j == i)
+                    continue;
+                double p = expected(elo[i], elo[j]);
+                information += (played[i][j] + 1) * p * (1 - p);
+                total += score[i][j];
+                games += played[i][j];
+            }
+            double margin = Z95 * 400 / Math.log(10) / Math.sqrt(information);
+            System.out.printf("%-20s %8.0f %8.0f %8d %7.1f%%%n", players[i], elo[i], margin, games,
+                    games == 0 ? 0 : 100 * total / games);
+        }
+    }
+
+    /*
+    Minorization-maximization for the Bradley-Terry strengths, with the
+    virtual draw added to every pairing
+    */
+    private static double[] ratings(double[][] score, int[][] played)
+    {
+        int n = score.length;
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        for (int iteration = 0; iteration < 10_000; iteration++)
+        {
+            double change = 0;
+            double logSum = 0;
+            for (int i = 0; i < n; i++)
+            {
+                double wins = 0;
+                double denominator = 0;
+                for (int j = 0; j < n; j++)
+                {
+                    if (j == i)
+                        continue;
+                    wins += score[i][j] + 0.5;
+                    denominator += (played[i][j] + 1) / (strength[i] + strength[j]);
+                }
+                double next = wins / denominator;
+                change = Math.max(change, Math.abs(Math.log(next / strength[i])));
+                strength[i] = next;
+                logSum += Math.log(next);
+            }
+            double mean = Math.exp(logSum / n);
+            for (int i = 0; i < n; i++)
+            {
+                strength[i] /= mean;
+            }
+            if (change < 1e-10)
+                break;
+        }
+        double[] elo = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            elo[i] = 400 * Math.log10(strength[i]);
+        }
+        return elo;
+    }
+
+    private static double expected(double elo, double opponent)
+    {
+        return 1 / (1 + Math.pow(10, (opponent - elo) / 400));
+    }
+}
@@ -0,0 +1,166 @@
+package game.tablebase;
+
+import game.engine.Geometry;
+
+/*
+Numbers every position with a given number of discs from 0 up, with no
+gaps, so a table can be a plain array indexed by position.  A position is
+its column heights plus which of the discs belong to the first player.
+The heights are ranked among all height profiles with the same disc count
+and the colors as a combination (in the combinatorial number system) of
+the first player's discs among all discs, taken column by column from the
+bottom.  The first player always has the odd disc on an odd count.
+
+Every position that obeys gravity gets an index, also the few that cannot
+be reached in a game; the tables simply mark those.  Positions are held as
+one bit mask per side, so boards need at most 64 cell indexes.
+*/
+final class PositionIndex
+{
+    private final Geometry geometry;
+    private final int columns;
+    private final int rows;
+    private final int cells;
+    // binomial[n][k] = n choose k
+    private final long[][] binomial;
+    // profiles[c][s] = number of ways c columns can hold s discs
+    private final long[][] profiles;
+
+    PositionIndex(Geometry geometry)
+    {
+        if (geometry.getBits() > 64)
+        {
+            throw new IllegalArgumentException("Tablebases need boards of at most 64 cell indexes, not " + geometry);
+        }
+        this.geometry = geometry;
+        columns = geometry.getColumns();
+        rows = geometry.getRows();
+        cells = geometry.getCells();
+        binomial = new long[cells + 1][cells + 1];
+        for (int n = 0; n <= cells; n++)
+        {
+            binomial[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+            {
+                binomial[n][k] = binomial[n - 1][k - 1] + binomial[n - 1][k];
+            }
+        }
+        profiles = new long[columns + 1][cells + 1];
+        profiles[0][0] = 1;
+        for (int c = 1; c <= columns; c++)
+        {
+            for (int s = 0; s <= cells; s++)
+            {
+                for (int h = 0; h <= Math.min(rows, s); h++)
+                {
+                    profiles[c][s] += profiles[c - 1][s - h];
+                }
+            }
+        }
+    }
+
+    Geometry getGeometry()
+    {
+        return geometry;
+    }
+
+    static int firstDiscs(int discs)
+    {
+        return (discs + 1) / 2;
+    }
+
+    /*
+    Number of positions with this many discs
+    */
+    long size(int discs)
+    {
+        return Math.multiplyExact(profiles[columns][discs], binomial[discs][firstDiscs(discs)]);
+    }
+
+    long index(int[] heights, long first)
+    {
+        int discs = 0;
+        for (int h : heights)
+        {
+            discs += h;
+        }
+        long profile = 0;
+        int left = discs;
+        for (int c = 0; c < columns; c++)
+        {
+            for (int h = 0; h < heights[c]; h++)
+            {
+                profile += profiles[columns - c - 1][left - h];
+            }
+            left -= heights[c];
+        }
+        long colors = 0;
+        int k = 0;
+        int chosen = 0;
+        for (int c = 0; c < columns; c++)
+        {
+            for (int row = 0; row < heights[c]; row++, k++)
+            {
+                if ((first >>> geometry.cell(c, row) & 1) != 0)
+                {
+                    colors += binomial[k][++chosen];
+                }
+            }
+        }
+        return profile * binomial[discs][firstDiscs(discs)] + colors;
+    }
+
+    /*
+    Fills in heights and the first and second player's masks of the
+    position with this index
+    */
+    void position(int discs, long index, int[] heights, long[] sides)
+    {
+        long perProfile = binomial[discs][firstDiscs(discs)];
+        long profile = index / perProfile;
+        long colors = index % perProfile;
+        int left = discs;
+        for (int c = 0; c < columns; c++)
+        {
+            int h = 0;
+            while (true)
+            {
+                long ways = profiles[columns - c - 1][left - h];
+                if (profile < ways)
+                    break;
+                profile -= ways;
+                h++;
+            }
+            heights[c] = h;
+            left -= h;
+        }
+
+        // the first player's discs by their place k in column order
+        long chosen = 0;
+        for (int j = firstDiscs(discs); j > 0; j--)
+        {
+            int k = j - 1;
+            while (binomial[k + 1][j] <= colors)
+            {
+                k++;
+            }
+            colors -= binomial[k][j];
+            chosen |= 1L << k;
+        }
+        long first = 0;
+        long second = 0;
+        int k = 0;
+        for (int c = 0; c < columns; c++)
+        {
+            for (int row = 0; row < heights[c]; row++, k++)
+            {
+                if ((chosen >>> k & 1) != 0)
+                    first |= 1L << geometry.cell(c, row);
+                else
+                    second |= 1L << geometry.cell(c, row);
+            }
+        }
+        sides[0] = first;
+        sides[1] = second;
+    }
+}
@@ -0,0 +1,228 @@
+package game.tablebase;
+
+import game.engine.Board;
+import game.engine.Geometry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/*
+Exact results of every position from some disc count up, as written by
+TablebaseGenerator.  A result is one byte: INVALID for positions that
+cannot occur, DRAW, or a win or loss for the side to move together with
+the number of plies until the winning disc is dropped, counting the
+move to be made now as 1.
+
+The file holds the results in position index order, deflated in blocks
+of BLOCK entries, after an index of where every block starts.  Only that
+index is mapped; a probe reads and inflates one block, and every thread
+keeps the block it read last, so probes near each other are cheap.
+
+    header      magic C4TB, version, columns, rows, connect, min discs,
+                block size, layer count (8 ints)
+    layers      first block of every disc count from min discs up (longs)
+    offsets     file position of every block and the end of the last (longs)
+    data        deflated blocks
+*/
+public final class Tablebase implements Closeable
+{
+    public static final int MISS = -1;
+    public static final int INVALID = 0;
+    public static final int DRAW = 1;
+
+    static final int MAGIC = 0x43345442; // "C4TB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int BLOCK = 4096;
+
+    private final FileChannel channel;
+    private final Geometry geometry;
+    private final PositionIndex index;
+    private final int minDiscs;
+    private final long[] firstBlock;
+    // file positions of the blocks
+    private final MappedByteBuffer offsets;
+    private final ThreadLocal<Cursor> cursors = ThreadLocal.withInitial(Cursor::new);
+
+    /*
+    Last block one thread inflated
+    */
+    private static final class Cursor
+    {
+        final Inflater inflater = new Inflater();
+        final byte[] block = new byte[BLOCK];
+        ByteBuffer compressed = ByteBuffer.allocate(BLOCK + 64);
+        long number = -1;
+    }
+
+    private Tablebase(FileChannel channel, Geometry geometry, int minDiscs, long[] firstBlock,
+            MappedByteBuffer offsets)
+    {
+        this.channel = channel;
+        this.geometry = geometry;
+        this.minDiscs = minDiscs;
+        this.firstBlock = firstBlock;
+        this.offsets = offsets;
+        index = new PositionIndex(geometry);
+    }
+
+    public static Tablebase open(Path path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION)
+            {
+                throw new IOException(path + " is not a tablebase");
+            }
+            Geometry geometry = Geometry.of(header.getInt(), header.getInt(), header.getInt());
+            int minDiscs = header.getInt();
+            if (header.getInt() != BLOCK)
+            {
+                throw new IOException(path + " uses an unsupported block size");
+            }
+            int layers = header.getInt();
+            ByteBuffer table = ByteBuffer.allocate(layers * 8);
+            channel.read(table, HEADER_BYTES);
+            table.flip();
+            long[] firstBlock = new long[layers];
+            for (int i = 0; i < layers; i++)
+            {
+                firstBlock[i] = table.getLong();
+            }
+            long offsetsStart = HEADER_BYTES + layers * 8L;
+            // the first block starts right after the offsets, which gives their count
+            ByteBuffer first = ByteBuffer.allocate(8);
+            channel.read(first, offsetsStart);
+            first.flip();
+            long blocks = (first.getLong() - offsetsStart) / 8 - 1;
+            MappedByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, offsetsStart, (blocks + 1) * 8);
+            return new Tablebase(channel, geometry, minDiscs, firstBlock, offsets);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public Geometry getGeometry()
+    {
+        return geometry;
+    }
+
+    /*
+    Positions with fewer discs are not in the table
+    */
+    public int getMinDiscs()
+    {
+        return minDiscs;
+    }
+
+    /*
+    Result for the side to move, or MISS when the position has too few
+    discs or cannot occur in a game
+    */
+    public int probe(Board board) throws IOException
+    {
+        if (board.getGeometry() != geometry)
+        {
+            throw new IllegalArgumentException("Tablebase is for " + geometry + ", not " + board.getGeometry());
+        }
+        if (board.getPly() < minDiscs)
+        {
+            return MISS;
+        }
+        int[] heights = new int[geometry.getColumns()];
+        long first = 0;
+        for (int col = 0; col < heights.length; col++)
+        {
+            heights[col] = board.getHeight(col);
+            for (int row = 0; row < heights[col]; row++)
+            {
+                int cell = geometry.cell(col, row);
+                if (board.hasDisc(0, cell))
+                    first |= 1L << cell;
+            }
+        }
+        int result = get(board.getPly(), index.index(heights, first));
+        return result == INVALID ? MISS : result;
+    }
+
+    int get(int discs, long position) throws IOException
+    {
+        long number = firstBlock[discs - minDiscs] + position / BLOCK;
+        Cursor cursor = cursors.get();
+        if (cursor.number != number)
+        {
+            long start = offsets.getLong((int) (number * 8));
+            int length = (int) (offsets.getLong((int) (number * 8 + 8)) - start);
+            if (cursor.compressed.capacity() < length)
+            {
+                cursor.compressed = ByteBuffer.allocate(length);
+            }
+            ByteBuffer compressed = cursor.compressed;
+            compressed.clear().limit(length);
+            while (compressed.hasRemaining())
+            {
+                if (channel.read(compressed, start + compressed.position()) < 0)
+                    throw new IOException("Tablebase is truncated");
+            }
+            cursor.inflater.reset();
+            cursor.inflater.setInput(compressed.array(), 0, length);
+            try
+            {
+                cursor.inflater.inflate(cursor.block);
+            }
+            catch (DataFormatException ex)
+            {
+                throw new IOException("Tablebase block " + number + " is corrupt", ex);
+            }
+            cursor.number = number;
+        }
+        return cursor.block[(int) (position % BLOCK)] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    static int win(int plies)
+    {
+        return 2 * plies;
+    }
+
+    static int loss(int plies)
+    {
+        return 2 * plies + 1;
+    }
+
+    public static boolean isWin(int result)
+    {
+        return result > DRAW && (result & 1) == 0;
+    }
+
+    public static boolean isLoss(int result)
+    {
+        return result > DRAW && (result & 1) == 1;
+    }
+
+    /*
+    Plies until the winning disc drops, the current move counting as 1
+    */
+    public static int distance(int result)
+    {
+        return result >>> 1;
+    }
+}
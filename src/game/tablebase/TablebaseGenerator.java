@@ -0,0 +1,390 @@
+package game.tablebase;
+
+import game.Arguments;
+import game.engine.Geometry;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/*
+Builds a Tablebase by retrograde analysis.  Every move adds a disc, so the
+positions fall into layers by disc count, and a position only depends on
+the layer above it.  The full board is solved first and every layer after
+that is solved from the one above, down to --min-discs.
+
+A layer is solved in chunks spread over all cores into a raw file of one
+byte per position in the work directory, next to a file with one byte per
+chunk that is set once the chunk is safely on disk.  A run that is stopped
+picks up at the first layer, and the chunks in it, that are not done yet.
+Once every layer is done they are packed into the compressed table.
+
+The number of positions grows quickly with the board and the number of
+empty cells; the run prints it up front.
+
+    java game.Driver tablebase --min-discs=20 [--geometry=5x4/4]
+        [--out=tablebase.bin] [--work=tablebase.bin.work] [--threads=n]
+*/
+public class TablebaseGenerator
+{
+    private static final int CHUNK = 1 << 20;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final Geometry geometry;
+    private final PositionIndex index;
+    private final int minDiscs;
+    private final Path work;
+    private final int threads;
+    private final int cells;
+    // lines[cell] holds a mask for every line through the cell
+    private final long[][] lines;
+    private final long[] allLines;
+
+    public TablebaseGenerator(Geometry geometry, int minDiscs, Path work, int threads)
+    {
+        this.geometry = geometry;
+        index = new PositionIndex(geometry);
+        cells = geometry.getCells();
+        if (minDiscs < 0 || minDiscs > cells)
+        {
+            throw new IllegalArgumentException("Disc count " + minDiscs + " out of range for " + geometry);
+        }
+        this.minDiscs = minDiscs;
+        this.work = work;
+        this.threads = threads;
+
+        int[] ids = geometry.getLineIds();
+        allLines = new long[ids.length];
+        int[] through = new int[geometry.getBits()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            for (int cell : geometry.getLineCells(ids[i]))
+            {
+                allLines[i] |= 1L << cell;
+                through[cell]++;
+            }
+        }
+        lines = new long[geometry.getBits()][];
+        for (int cell = 0; cell < lines.length; cell++)
+        {
+            lines[cell] = new long[through[cell]];
+            through[cell] = 0;
+        }
+        for (long line : allLines)
+        {
+            for (int cell = 0; cell < lines.length; cell++)
+            {
+                if ((line >>> cell & 1) != 0)
+                    lines[cell][through[cell]++] = line;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Arguments arguments = new Arguments(args);
+        Geometry geometry = Geometry.parse(arguments.get("geometry", Geometry.STANDARD.toString()));
+        String out = arguments.get("out", "tablebase.bin");
+        TablebaseGenerator generator = new TablebaseGenerator(geometry,
+                arguments.getInt("min-discs", geometry.getCells()),
+                Paths.get(arguments.get("work", out + ".work")),
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        generator.generate();
+        generator.pack(Paths.get(out));
+    }
+
+    public void generate() throws IOException, InterruptedException
+    {
+        long total = 0;
+        for (int discs = minDiscs; discs <= cells; discs++)
+        {
+            total += index.size(discs);
+        }
+        System.out.printf("%s from %d discs: %d positions, %d MB of work files%n",
+                geometry, minDiscs, total, total >> 20);
+        Files.createDirectories(work);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r ->
+        {
+            Thread thread = new Thread(r, "tablebase");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            for (int discs = cells; discs >= minDiscs; discs--)
+            {
+                solveLayer(pool, discs);
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    private Path raw(int discs)
+    {
+        return work.resolve("layer-" + discs + ".raw");
+    }
+
+    private void solveLayer(ExecutorService pool, int discs) throws IOException, InterruptedException
+    {
+        long size = index.size(discs);
+        int chunks = (int) ((size + CHUNK - 1) / CHUNK);
+        try (RandomAccessFile rawFile = new RandomAccessFile(raw(discs).toFile(), "rw");
+             RandomAccessFile doneFile = new RandomAccessFile(work.resolve("layer-" + discs + ".done").toFile(), "rw"))
+        {
+            rawFile.setLength(size);
+            doneFile.setLength(chunks);
+            byte[] done = new byte[chunks];
+            doneFile.readFully(done);
+            List<Integer> todo = new ArrayList<>();
+            for (int chunk = 0; chunk < chunks; chunk++)
+            {
+                if (done[chunk] == 0)
+                    todo.add(chunk);
+            }
+            if (todo.isEmpty())
+            {
+                return;
+            }
+
+            Layer above = discs < cells ? new Layer(raw(discs + 1), index.size(discs + 1)) : null;
+            FileChannel values = rawFile.getChannel();
+            FileChannel marks = doneFile.getChannel();
+            AtomicLong solved = new AtomicLong();
+            long start = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>();
+            for (int chunk : todo)
+            {
+                running.add(pool.submit(() ->
+                {
+                    long first = (long) chunk * CHUNK;
+                    byte[] results = solveChunk(discs, first, (int) Math.min(CHUNK, size - first), above);
+                    writeFully(values, ByteBuffer.wrap(results), first);
+                    values.force(false);
+                    writeFully(marks, ByteBuffer.wrap(new byte[] {1}), chunk);
+                    marks.force(false);
+                    solved.addAndGet(results.length);
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : running)
+            {
+                try
+                {
+                    chunk.get();
+                }
+                catch (ExecutionException ex)
+                {
+                    throw new IOException("Layer " + discs + " failed", ex.getCause());
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("layer %d: %d positions in %.1f s (%.0f positions/s)%n",
+                    discs, solved.get(), seconds, solved.get() / seconds);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException
+    {
+        while (data.hasRemaining())
+        {
+            channel.write(data, position + data.position());
+        }
+    }
+
+    private byte[] solveChunk(int discs, long first, int count, Layer above)
+    {
+        byte[] results = new byte[count];
+        int[] heights = new int[geometry.getColumns()];
+        long[] sides = new long[2];
+        for (int i = 0; i < count; i++)
+        {
+            index.position(discs, first + i, heights, sides);
+            results[i] = (byte) solve(discs, heights, sides, above);
+        }
+        return results;
+    }
+
+    /*
+    Result for the side to move, from the results of the layer above
+    */
+    private int solve(int discs, int[] heights, long[] sides, Layer above)
+    {
+        for (long line : allLines)
+        {
+            if ((sides[0] & line) == line || (sides[1] & line) == line)
+                return Tablebase.INVALID;
+        }
+        if (discs == cells)
+        {
+            return Tablebase.DRAW;
+        }
+        int mover = discs & 1;
+        long mine = sides[mover];
+        for (int col = 0; col < heights.length; col++)
+        {
+            if (heights[col] == geometry.getRows())
+                continue;
+            int cell = geometry.cell(col, heights[col]);
+            for (long line : lines[cell])
+            {
+                if (((mine | 1L << cell) & line) == line)
+                    return Tablebase.win(1);
+            }
+        }
+
+        int bestWin = Integer.MAX_VALUE;
+        int worstLoss = 0;
+        boolean draw = false;
+        for (int col = 0; col < heights.length; col++)
+        {
+            if (heights[col] == geometry.getRows())
+                continue;
+            long first = mover == 0 ? sides[0] | 1L << geometry.cell(col, heights[col]) : sides[0];
+            heights[col]++;
+            int child = above.get(index.index(heights, first));
+            heights[col]--;
+            // the child's result is for the opponent
+            if (child == Tablebase.DRAW)
+                draw = true;
+            else if (Tablebase.isWin(child))
+                worstLoss = Math.max(worstLoss, Tablebase.distance(child) + 1);
+            else if (Tablebase.isLoss(child))
+                bestWin = Math.min(bestWin, Tablebase.distance(child) + 1);
+        }
+        if (bestWin != Integer.MAX_VALUE)
+            return Tablebase.win(bestWin);
+        return draw ? Tablebase.DRAW : Tablebase.loss(worstLoss);
+    }
+
+    /*
+    Writes the finished layers into the compressed table.  Packing reads
+    only finished layers, so an interrupted pack is simply run again.
+    */
+    public void pack(Path out) throws IOException
+    {
+        int layers = cells - minDiscs + 1;
+        long[] firstBlock = new long[layers];
+        long blocks = 0;
+        for (int discs = minDiscs; discs <= cells; discs++)
+        {
+            firstBlock[discs - minDiscs] = blocks;
+            blocks += (index.size(discs) + Tablebase.BLOCK - 1) / Tablebase.BLOCK;
+        }
+        long offsetsStart = Tablebase.HEADER_BYTES + layers * 8L;
+        long[] offsets = new long[(int) blocks + 1];
+        long position = offsetsStart + offsets.length * 8L;
+
+        Path partial = out.resolveSibling(out.getFileName() + ".partial");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            Deflater deflater = new Deflater();
+            byte[] block = new byte[Tablebase.BLOCK];
+            byte[] compressed = new byte[Tablebase.BLOCK * 2];
+            int number = 0;
+            for (int discs = minDiscs; discs <= cells; discs++)
+            {
+                long size = index.size(discs);
+                try (FileChannel layer = FileChannel.open(raw(discs), StandardOpenOption.READ))
+                {
+                    for (long first = 0; first < size; first += Tablebase.BLOCK)
+                    {
+                        int length = (int) Math.min(Tablebase.BLOCK, size - first);
+                        ByteBuffer in = ByteBuffer.wrap(block, 0, length);
+                        while (in.hasRemaining())
+                        {
+                            if (layer.read(in, first + in.position()) < 0)
+                                throw new IOException("Layer " + discs + " is not finished");
+                        }
+                        deflater.reset();
+                        deflater.setInput(block, 0, length);
+                        deflater.finish();
+                        int packed = deflater.deflate(compressed);
+                        offsets[number++] = position;
+                        ByteBuffer data = ByteBuffer.wrap(compressed, 0, packed);
+                        while (data.hasRemaining())
+                        {
+                            position += channel.write(data, position);
+                        }
+                    }
+                }
+            }
+            offsets[number] = position;
+            deflater.end();
+
+            ByteBuffer header = ByteBuffer.allocate((int) offsetsStart);
+            header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION)
+                    .putInt(geometry.getColumns()).putInt(geometry.getRows()).putInt(geometry.getConnect())
+                    .putInt(minDiscs).putInt(Tablebase.BLOCK).putInt(layers);
+            for (long start : firstBlock)
+            {
+                header.putLong(start);
+            }
+            header.flip();
+            channel.write(header, 0);
+            ByteBuffer table = ByteBuffer.allocate(1 << 16);
+            long at = offsetsStart;
+            for (long offset : offsets)
+            {
+                if (!table.hasRemaining())
+                {
+                    table.flip();
+                    at += channel.write(table, at);
+                    table.clear();
+                }
+                table.putLong(offset);
+            }
+            table.flip();
+            while (table.hasRemaining())
+            {
+                at += channel.write(table, at);
+            }
+            channel.force(true);
+        }
+        Files.move(partial, out, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("wrote %s: %d blocks, %d MB%n", out, blocks, Files.size(out) >> 20);
+    }
+
+    /*
+    Read access to a finished layer, mapped a window at a time
+    */
+    private static final class Layer
+    {
+        private final MappedByteBuffer[] windows;
+
+        Layer(Path path, long size) throws IOException
+        {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                windows = new MappedByteBuffer[(int) ((size + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+                for (int i = 0; i < windows.length; i++)
+                {
+                    long start = i * WINDOW_BYTES;
+                    windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+                }
+            }
+        }
+
+        int get(long position)
+        {
+            return windows[(int) (position / WINDOW_BYTES)].get((int) (position % WINDOW_BYTES)) & 0xFF;
+        }
+    }
+}